@@ -15,3 +15,12 @@
 # -keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 # }
+
+# Plugins are loaded by name through the generated PluginIndex and register
+# themselves from static initializers, so keep them intact.
+-keep class mgks.os.swv.plugins.** { *; }
+
+# The message bus is the only object exposed to page JavaScript.
+-keepclassmembers class mgks.os.swv.MessageBus {
+    @android.webkit.JavascriptInterface <methods>;
+}
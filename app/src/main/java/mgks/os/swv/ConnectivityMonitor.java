@@ -0,0 +1,230 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide connectivity state kept current by a ConnectivityManager.NetworkCallback.
+ * Readers get an immutable snapshot through a volatile field, so checking the network on the
+ * navigation path costs no binder calls.
+ */
+public final class ConnectivityMonitor {
+
+    private static final String TAG = "ConnectivityMonitor";
+
+    // Transport types
+    public static final int TRANSPORT_NONE = 0;
+    public static final int TRANSPORT_WIFI = 1;
+    public static final int TRANSPORT_CELLULAR = 2;
+    public static final int TRANSPORT_ETHERNET = 3;
+    public static final int TRANSPORT_VPN = 4;
+    public static final int TRANSPORT_OTHER = 5;
+
+    /**
+     * Immutable view of the default network at one point in time.
+     */
+    public static final class Snapshot {
+        public final boolean online;
+        public final int transport;
+        public final boolean metered;
+
+        Snapshot(boolean online, int transport, boolean metered) {
+            this.online = online;
+            this.transport = transport;
+            this.metered = metered;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "online=" + online + ", transport=" + transport + ", metered=" + metered;
+        }
+    }
+
+    public interface Listener {
+        void onConnectivityChanged(Snapshot snapshot);
+    }
+
+    private static final Snapshot OFFLINE = new Snapshot(false, TRANSPORT_NONE, false);
+
+    // Optimistic only until start() takes the first snapshot synchronously
+    private static volatile Snapshot snapshot = new Snapshot(true, TRANSPORT_OTHER, false);
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static boolean started = false;
+
+    private ConnectivityMonitor() {}
+
+    /**
+     * Registers the network callback. Safe to call more than once.
+     */
+    public static synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        final ConnectivityManager cm = (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) {
+            Log.e(TAG, "ConnectivityManager is null");
+            return;
+        }
+        started = true;
+
+        // Callbacks only report changes, so read the current state now; an offline cold start must not look online
+        publish(query(cm));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    NetworkCapabilities capabilities = cm.getNetworkCapabilities(network);
+                    publish(capabilities != null ? fromCapabilities(capabilities) : query(cm));
+                }
+
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                    publish(fromCapabilities(capabilities));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    publish(OFFLINE);
+                }
+            });
+        } else {
+            // No default-network callback before N: re-query the active network on every change
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            cm.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    publish(query(cm));
+                }
+
+                @Override
+                public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities capabilities) {
+                    publish(query(cm));
+                }
+
+                @Override
+                public void onLost(@NonNull Network network) {
+                    publish(query(cm));
+                }
+            });
+        }
+    }
+
+    public static Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public static boolean isOnline() {
+        return snapshot.online;
+    }
+
+    public static boolean isMetered() {
+        return snapshot.metered;
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void publish(Snapshot next) {
+        Snapshot previous = snapshot;
+        snapshot = next;
+        SWVContext.true_online = next.online;
+        if (previous.online != next.online || previous.transport != next.transport || previous.metered != next.metered) {
+            if (SWVConfig.get().debugMode) {
+                Log.d(TAG, "Connectivity changed: " + next);
+            }
+            for (Listener listener : listeners) {
+                listener.onConnectivityChanged(next);
+            }
+        }
+    }
+
+    private static Snapshot query(ConnectivityManager cm) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            Network network = cm.getActiveNetwork();
+            NetworkCapabilities capabilities = network != null ? cm.getNetworkCapabilities(network) : null;
+            return capabilities != null ? fromCapabilities(capabilities) : OFFLINE;
+        }
+        // getActiveNetwork() is API 23; API 21-22 only have the NetworkInfo view
+        return fromNetworkInfo(cm.getActiveNetworkInfo(), cm.isActiveNetworkMetered());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Snapshot fromNetworkInfo(NetworkInfo info, boolean metered) {
+        if (info == null || !info.isConnected()) {
+            return OFFLINE;
+        }
+        int transport;
+        switch (info.getType()) {
+            case ConnectivityManager.TYPE_WIFI:
+                transport = TRANSPORT_WIFI;
+                break;
+            case ConnectivityManager.TYPE_MOBILE:
+                transport = TRANSPORT_CELLULAR;
+                break;
+            case ConnectivityManager.TYPE_ETHERNET:
+                transport = TRANSPORT_ETHERNET;
+                break;
+            case ConnectivityManager.TYPE_VPN:
+                transport = TRANSPORT_VPN;
+                break;
+            default:
+                return OFFLINE;
+        }
+        return new Snapshot(true, transport, metered);
+    }
+
+    private static Snapshot fromCapabilities(NetworkCapabilities capabilities) {
+        int transport;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            transport = TRANSPORT_VPN;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transport = TRANSPORT_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transport = TRANSPORT_CELLULAR;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transport = TRANSPORT_ETHERNET;
+        } else {
+            transport = TRANSPORT_OTHER;
+        }
+        boolean online = transport != TRANSPORT_OTHER
+                && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        boolean metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        return new Snapshot(online, online ? transport : TRANSPORT_NONE, metered);
+    }
+}
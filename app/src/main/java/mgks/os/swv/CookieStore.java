@@ -0,0 +1,155 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.os.Process;
+import android.util.Log;
+import android.webkit.CookieManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cookie access for the app URL. Reads come from a parsed name -> value map that is rebuilt only after
+ * invalidate() (page loads and native fetches can change cookies behind our back). Writes update that map
+ * at once and are handed to CookieManager in batches on a background thread, followed by a single flush().
+ */
+public final class CookieStore {
+
+    private static final String TAG = "CookieStore";
+
+    private static final Object lock = new Object();
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-cookies");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Parsed cookies of cacheUrl; null when they have to be read again
+    private static Map<String, String> cache;
+    private static String cacheUrl;
+    // Set-Cookie strings per URL, waiting for the writer
+    private static List<String[]> pending = new ArrayList<>();
+    private static boolean flushScheduled = false;
+    private static boolean acceptSet = false;
+
+    private CookieStore() {}
+
+    /**
+     * Value of the cookie with exactly this name for the URL, or an empty string.
+     */
+    public static String get(String url, String name) {
+        synchronized (lock) {
+            if (cache == null || !url.equals(cacheUrl)) {
+                cache = parse(CookieManager.getInstance().getCookie(url));
+                cacheUrl = url;
+                // Writes the writer hasn't reached yet are not visible to CookieManager
+                for (String[] write : pending) {
+                    if (write[0].equals(url)) {
+                        put(cache, write[1]);
+                    }
+                }
+            }
+            String value = cache.get(name);
+            return value != null ? value : "";
+        }
+    }
+
+    /**
+     * Queues a cookie ("name=value; attributes") for the URL. Calls made close together reach
+     * CookieManager as one batch.
+     */
+    public static void set(String url, String cookie) {
+        synchronized (lock) {
+            pending.add(new String[]{url, cookie});
+            if (cache != null && url.equals(cacheUrl)) {
+                put(cache, cookie);
+            }
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        writer.execute(CookieStore::flush);
+    }
+
+    /**
+     * Drops the parsed cookies; the next get() reads them from CookieManager again.
+     */
+    public static void invalidate() {
+        synchronized (lock) {
+            cache = null;
+        }
+    }
+
+    private static void flush() {
+        List<String[]> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new ArrayList<>();
+            flushScheduled = false;
+        }
+        CookieManager manager = CookieManager.getInstance();
+        if (!acceptSet) {
+            manager.setAcceptCookie(true);
+            acceptSet = true;
+        }
+        for (String[] write : batch) {
+            manager.setCookie(write[0], write[1]);
+        }
+        manager.flush();
+        if (SWVConfig.get().debugMode) {
+            Log.d(TAG, "Wrote " + batch.size() + " cookie(s)");
+        }
+    }
+
+    private static Map<String, String> parse(String header) {
+        Map<String, String> cookies = new HashMap<>();
+        if (header == null || header.isEmpty()) {
+            return cookies;
+        }
+        int start = 0;
+        while (start < header.length()) {
+            int end = header.indexOf(';', start);
+            if (end < 0) {
+                end = header.length();
+            }
+            put(cookies, header.substring(start, end));
+            start = end + 1;
+        }
+        return cookies;
+    }
+
+    // Adds the name=value part of a cookie string; attributes after the first ';' are ignored
+    private static void put(Map<String, String> cookies, String cookie) {
+        int semicolon = cookie.indexOf(';');
+        String pair = semicolon >= 0 ? cookie.substring(0, semicolon) : cookie;
+        int eq = pair.indexOf('=');
+        String name = (eq >= 0 ? pair.substring(0, eq) : pair).trim();
+        if (!name.isEmpty()) {
+            cookies.put(name, eq >= 0 ? pair.substring(eq + 1).trim() : "");
+        }
+    }
+}
@@ -0,0 +1,1147 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.media.MediaScannerConnection;
+import android.net.Uri;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.util.AtomicFile;
+import android.util.Base64;
+import android.util.Base64InputStream;
+import android.util.Log;
+import android.webkit.CookieManager;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-app downloader. A file is probed with a one-byte Range request; if the server supports ranges,
+ * it is split into up to download.segments parts that are fetched in parallel and written in place
+ * into the destination (a pending MediaStore item on Android 10+, the public Downloads folder before).
+ * Each download keeps a sidecar state file in filesDir/swv_downloads/&lt;id&gt;/ with the bytes done per
+ * segment, so it resumes where it stopped after a network loss or process death. The finished file is
+ * checked against its expected size and SHA-256 (given by the page or a Digest header).
+ * blob: and data: URLs, which only exist inside the page, are streamed into the same kind of destination
+ * chunk by chunk (openStream/writeStream/closeStream).
+ *
+ * Network downloads are queued: at most download.max.concurrent run at once, by priority class and then age.
+ * A download can require an unmetered network or a charger, and failures are retried with exponential
+ * backoff. The queue lives in the same state files, so it survives restarts.
+ *
+ * The page follows progress through bus events: 'download-progress' {id, received, total},
+ * 'download-complete' {id, fileName, uri} and 'download-failed' {id, error}.
+ */
+public final class DownloadEngine {
+
+    private static final String TAG = "DownloadEngine";
+    private static final String DIR = "swv_downloads";
+    private static final String STATE_FILE = "state.json";
+    private static final String CHANNEL = "swv_downloads";
+    private static final long MIN_SEGMENT = 4L * 1024 * 1024;
+    private static final long SAVE_INTERVAL_BYTES = 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final long NOTIFY_INTERVAL_MS = 1000;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long RETRY_BASE_MS = 30 * 1000;
+    private static final long RETRY_MAX_MS = 60 * 60 * 1000;
+    // Bytes per blob: chunk; sent as is over BLOB_CHANNEL, or about 700 KB once base64-encoded for the bus
+    private static final int BLOB_CHUNK = 512 * 1024;
+
+    /**
+     * Name of the WebMessageListener object that carries blob: chunks as ArrayBuffers (see writeFrame).
+     * Pages without it fall back to base64 over the bus.
+     */
+    public static final String BLOB_CHANNEL = "SWVDownloads";
+
+    public static final String STATUS_QUEUED = "queued";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_COMPLETE = "complete";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    // Priority classes; lower runs first, ties go to the oldest download
+    public static final int PRIORITY_HIGH = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_LOW = 2;
+
+    /**
+     * What to download. fileName and mimeType usually come from the WebView's DownloadListener or the page;
+     * fileName is reduced to a plain name (see DownloadIO.safeFileName). sha256 (hex) is optional.
+     */
+    public static final class Request {
+        public final String url;
+        public final String userAgent;
+        public final String fileName;
+        public final String mimeType;
+        public final String sha256;
+        public final int priority;
+        public final boolean unmeteredOnly;
+        public final boolean chargingOnly;
+
+        public Request(String url, String userAgent, String fileName, String mimeType, String sha256) {
+            this(url, userAgent, fileName, mimeType, sha256, PRIORITY_NORMAL, SWVConfig.get().downloadUnmeteredOnly, false);
+        }
+
+        public Request(String url, String userAgent, String fileName, String mimeType, String sha256,
+                       int priority, boolean unmeteredOnly, boolean chargingOnly) {
+            this.url = url;
+            this.userAgent = userAgent;
+            this.fileName = DownloadIO.safeFileName(fileName);
+            this.mimeType = mimeType;
+            this.sha256 = sha256;
+            this.priority = priority;
+            this.unmeteredOnly = unmeteredOnly;
+            this.chargingOnly = chargingOnly;
+        }
+    }
+
+    private static DownloadEngine instance;
+
+    private final Context context;
+    private final File root;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, FileChannel> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    // Unbounded; the number of threads is capped by download.max.concurrent times download.segments
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-download-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable scheduleTask = this::schedule;
+    private volatile boolean charging;
+
+    private DownloadEngine(Context context) {
+        this.context = context;
+        this.root = new File(context.getFilesDir(), DIR);
+        // Network and power changes can both release or hold back queued downloads
+        ConnectivityMonitor.addListener(snapshot -> schedule());
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        charging = battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        IntentFilter power = new IntentFilter();
+        power.addAction(Intent.ACTION_POWER_CONNECTED);
+        power.addAction(Intent.ACTION_POWER_DISCONNECTED);
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                charging = Intent.ACTION_POWER_CONNECTED.equals(intent.getAction());
+                schedule();
+            }
+        }, power);
+    }
+
+    public static synchronized DownloadEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new DownloadEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a download and returns its id. It starts once a slot is free and its constraints hold;
+     * all network and disk work is on the pool.
+     */
+    public String enqueue(Request request) {
+        Job job = newJob(request.fileName, request.mimeType);
+        job.url = request.url;
+        job.userAgent = request.userAgent;
+        job.sha256 = request.sha256 != null ? request.sha256.toLowerCase(Locale.ROOT) : null;
+        job.priority = request.priority;
+        job.unmeteredOnly = request.unmeteredOnly;
+        job.chargingOnly = request.chargingOnly;
+        jobs.put(job.id, job);
+        pool.execute(() -> {
+            try {
+                job.save();
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Could not persist download " + job.id + ": " + e.getMessage());
+            }
+            schedule();
+        });
+        return job.id;
+    }
+
+    /**
+     * Starts queued downloads, highest priority first, while fewer than download.max.concurrent run.
+     * Running downloads whose constraints no longer hold go back to the queue, and a timer is armed
+     * for the earliest backoff retry. Cheap; called on every change that could matter.
+     */
+    public synchronized void schedule() {
+        long now = System.currentTimeMillis();
+        long nextRetry = Long.MAX_VALUE;
+        int running = 0;
+        List<Job> ready = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.url == null) {
+                // Streams are pushed by the page and never queued
+                continue;
+            }
+            if (STATUS_RUNNING.equals(job.status)) {
+                if (constraintsMet(job)) {
+                    running++;
+                } else {
+                    requeue(job);
+                }
+            } else if (STATUS_QUEUED.equals(job.status)) {
+                if (job.retryAt > now) {
+                    nextRetry = Math.min(nextRetry, job.retryAt);
+                } else if (constraintsMet(job)) {
+                    ready.add(job);
+                }
+            }
+        }
+        Collections.sort(ready, (a, b) -> a.priority != b.priority
+                ? Integer.compare(a.priority, b.priority)
+                : Long.compare(a.created, b.created));
+        int slots = SWVConfig.get().downloadMaxConcurrent - running;
+        for (int i = 0; i < ready.size() && i < slots; i++) {
+            start(ready.get(i));
+        }
+        handler.removeCallbacks(scheduleTask);
+        if (nextRetry != Long.MAX_VALUE) {
+            handler.postDelayed(scheduleTask, nextRetry - now);
+        }
+    }
+
+    private boolean constraintsMet(Job job) {
+        if (!ConnectivityMonitor.isOnline()) {
+            return false;
+        }
+        if (job.chargingOnly && !charging) {
+            return false;
+        }
+        // Large files wait for an unmetered network once the probe has told us their size
+        long meteredLimit = SWVConfig.get().downloadMeteredMaxMb * 1024L * 1024L;
+        boolean unmeteredOnly = job.unmeteredOnly || (meteredLimit > 0 && job.total > meteredLimit);
+        return !unmeteredOnly || !ConnectivityMonitor.isMetered();
+    }
+
+    // Stops a running download's segments and puts it back in the queue with its progress kept
+    private void requeue(Job job) {
+        synchronized (job) {
+            if (!STATUS_RUNNING.equals(job.status)) {
+                return;
+            }
+            job.status = STATUS_QUEUED;
+            job.generation++;
+            job.remaining.set(0);
+        }
+        Log.i(TAG, "Download " + job.id + " waiting for its network or power constraints");
+        pool.execute(() -> {
+            try {
+                job.save();
+            } catch (IOException | JSONException ignored) {
+                // The state on disk is at most SAVE_INTERVAL_BYTES behind
+            }
+        });
+    }
+
+    /**
+     * Opens a download whose bytes are pushed by the caller instead of fetched, such as a blob: read
+     * by the page. size may be -1 when unknown. Streams are not persisted; they end with the page.
+     */
+    public String openStream(String fileName, String mimeType, long size) throws IOException {
+        Job job = newJob(fileName, mimeType);
+        job.total = size;
+        job.target = createTarget(job);
+        job.status = STATUS_RUNNING;
+        try {
+            streams.put(job.id, openChannel(job));
+        } catch (IOException e) {
+            deleteTarget(job);
+            throw e;
+        }
+        jobs.put(job.id, job);
+        return job.id;
+    }
+
+    /**
+     * Writes one chunk of a stream at its offset. Chunks may arrive in any order.
+     */
+    public void writeStream(String id, long offset, byte[] data, int length) throws IOException {
+        writeStream(id, offset, data, 0, length);
+    }
+
+    private void writeStream(String id, long offset, byte[] data, int start, int length) throws IOException {
+        Job job = jobs.get(id);
+        FileChannel channel = streams.get(id);
+        if (job == null || channel == null) {
+            throw new IOException("Unknown download " + id);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, start, length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        job.received.addAndGet(length);
+        progress(job);
+    }
+
+    /**
+     * Ends a stream. A complete stream is checked against its announced size and published;
+     * otherwise the partial file is removed.
+     */
+    public void closeStream(String id, boolean complete) {
+        Job job = jobs.get(id);
+        FileChannel channel = streams.remove(id);
+        if (job == null || channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            complete = false;
+        }
+        if (complete && (job.total < 0 || job.received.get() == job.total)) {
+            complete(job);
+            return;
+        }
+        synchronized (job) {
+            job.status = STATUS_FAILED;
+        }
+        jobs.remove(id);
+        fail(job, complete ? "Size mismatch: expected " + job.total + ", got " + job.received.get() : "Aborted");
+    }
+
+    /**
+     * Receives the acknowledgement of one BLOB_CHANNEL frame, as the JSON the page waits for.
+     */
+    public interface FrameAck {
+        void onAck(String json);
+    }
+
+    /**
+     * Writes one binary chunk received over BLOB_CHANNEL on the pool. A frame is the stream id's length
+     * (one byte), the id in ASCII, the offset (8 bytes, big-endian) and the data. ack gets {id, offset},
+     * plus error on failure; the page sends the next chunk only then, which is the back-pressure.
+     */
+    public void writeFrame(byte[] frame, FrameAck ack) {
+        pool.execute(() -> {
+            String id = null;
+            long offset = -1;
+            String error = null;
+            try {
+                int idLength = frame.length > 0 ? frame[0] & 0xff : 0;
+                if (idLength == 0 || frame.length < 9 + idLength) {
+                    throw new IOException("Malformed chunk");
+                }
+                id = new String(frame, 1, idLength, StandardCharsets.US_ASCII);
+                offset = ByteBuffer.wrap(frame, 1 + idLength, 8).getLong();
+                writeStream(id, offset, frame, 9 + idLength, frame.length - 9 - idLength);
+            } catch (IOException e) {
+                error = e.getMessage() != null ? e.getMessage() : "Write failed";
+            }
+            JSONObject reply = new JSONObject();
+            try {
+                reply.put("id", id);
+                reply.put("offset", offset);
+                reply.put("error", error);
+            } catch (JSONException ignored) {
+                // Only non-finite numbers are rejected
+            }
+            ack.onAck(reply.toString());
+        });
+    }
+
+    /**
+     * Saves a data: URL. The payload is decoded as it is written, so only the URL string itself is in memory.
+     */
+    public String saveDataUrl(String url, String fileName) {
+        int comma = url.indexOf(',');
+        String header = comma > 5 ? url.substring(5, comma) : "";
+        boolean base64 = header.endsWith(";base64");
+        String mimeType = header.split(";", 2)[0];
+        final String id;
+        try {
+            id = openStream(fileName, mimeType.isEmpty() ? null : mimeType, -1);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save data: URL: " + e.getMessage());
+            return null;
+        }
+        pool.execute(() -> {
+            boolean complete = false;
+            try (InputStream in = base64
+                    ? new Base64InputStream(new AsciiInputStream(url, comma + 1), Base64.DEFAULT)
+                    : new ByteArrayInputStream(Uri.decode(url.substring(comma + 1)).getBytes(StandardCharsets.UTF_8))) {
+                byte[] buffer = new byte[64 * 1024];
+                long offset = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    writeStream(id, offset, buffer, read);
+                    offset += read;
+                }
+                complete = true;
+            } catch (IOException | IllegalArgumentException e) {
+                Log.w(TAG, "Could not decode data: URL: " + e.getMessage());
+            }
+            closeStream(id, complete);
+        });
+        return id;
+    }
+
+    /**
+     * Script that reads a blob: URL inside the page and streams it to openStream/writeStream/closeStream,
+     * one chunk in flight at a time, so neither side holds the whole file. Chunks go as ArrayBuffers over
+     * BLOB_CHANNEL when the page has it, else base64 over the bus. A "busy" bus is retried with backoff.
+     */
+    public static String blobScript(String url, String fileName) {
+        return "(function(url, name) {\n" +
+                "  var CHUNK = " + BLOB_CHUNK + ", id = null, pipe = window." + BLOB_CHANNEL + ";\n" +
+                "  var acks = window.__swvBlobAcks = window.__swvBlobAcks || {};\n" +
+                "  if (pipe && !pipe.onmessage) {\n" +
+                "    pipe.onmessage = function(event) {\n" +
+                "      var m = JSON.parse(event.data), key = m.id + ':' + m.offset, p = acks[key];\n" +
+                "      if (!p) return;\n" +
+                "      delete acks[key];\n" +
+                "      if (m.error) { p.reject(new Error(m.error)); } else { p.resolve(); }\n" +
+                "    };\n" +
+                "  }\n" +
+                "  function call(method, args, attempt) {\n" +
+                "    attempt = attempt || 0;\n" +
+                "    return SWV.call('Downloads', method, args).catch(function(e) {\n" +
+                "      if (!e || e.message !== 'busy' || attempt >= 8) throw e;\n" +
+                "      return new Promise(function(r) { setTimeout(r, 50 << attempt); }).then(function() { return call(method, args, attempt + 1); });\n" +
+                "    });\n" +
+                "  }\n" +
+                "  function read(blob) {\n" +
+                "    return new Promise(function(resolve, reject) {\n" +
+                "      var reader = new FileReader();\n" +
+                "      reader.onload = function() { resolve(pipe ? reader.result : reader.result.slice(reader.result.indexOf(',') + 1)); };\n" +
+                "      reader.onerror = function() { reject(reader.error); };\n" +
+                "      if (pipe) { reader.readAsArrayBuffer(blob); } else { reader.readAsDataURL(blob); }\n" +
+                "    });\n" +
+                "  }\n" +
+                "  function send(offset, data) {\n" +
+                "    if (!pipe) return call('write', [id, offset, data]);\n" +
+                "    var n = id.length, frame = new Uint8Array(9 + n + data.byteLength), view = new DataView(frame.buffer);\n" +
+                "    frame[0] = n;\n" +
+                "    for (var i = 0; i < n; i++) frame[1 + i] = id.charCodeAt(i);\n" +
+                "    view.setUint32(1 + n, Math.floor(offset / 4294967296));\n" +
+                "    view.setUint32(5 + n, offset >>> 0);\n" +
+                "    frame.set(new Uint8Array(data), 9 + n);\n" +
+                "    return new Promise(function(resolve, reject) {\n" +
+                "      acks[id + ':' + offset] = { resolve: resolve, reject: reject };\n" +
+                "      pipe.postMessage(frame.buffer);\n" +
+                "    });\n" +
+                "  }\n" +
+                "  function next(blob, offset) {\n" +
+                "    if (offset >= blob.size) return call('close', [id, true]);\n" +
+                "    return read(blob.slice(offset, offset + CHUNK)).then(function(data) {\n" +
+                "      return send(offset, data);\n" +
+                "    }).then(function() { return next(blob, offset + CHUNK); });\n" +
+                "  }\n" +
+                "  fetch(url).then(function(r) { return r.blob(); }).then(function(blob) {\n" +
+                "    return call('open', [name, blob.type, blob.size]).then(function(result) {\n" +
+                "      id = result;\n" +
+                "      return next(blob, 0);\n" +
+                "    });\n" +
+                "  }).catch(function(e) {\n" +
+                "    if (id) call('close', [id, false]);\n" +
+                "    console.error('Download failed: ' + e);\n" +
+                "  });\n" +
+                "})(" + JSONObject.quote(url) + ", " + JSONObject.quote(fileName) + ");";
+    }
+
+    private Job newJob(String fileName, String mimeType) {
+        String id = Long.toString(System.currentTimeMillis(), 36) + Integer.toString((int) (Math.random() * 46656), 36);
+        Job job = new Job(id, new File(root, id));
+        // Streams don't go through Request; their names come straight from the page
+        job.fileName = DownloadIO.safeFileName(fileName);
+        job.mimeType = mimeType;
+        return job;
+    }
+
+    public void cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return;
+        }
+        job.cancelled = true;
+        FileChannel stream = streams.remove(id);
+        pool.execute(() -> {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    // The target is deleted anyway
+                }
+            }
+            synchronized (job) {
+                job.status = STATUS_CANCELLED;
+            }
+            deleteTarget(job);
+            deleteDir(job.dir);
+            jobs.remove(id);
+            NotificationManagerCompat.from(context).cancel(TAG, job.notificationId());
+        });
+    }
+
+    /**
+     * Downloads known to the engine, with their status and progress.
+     */
+    public JSONArray list() {
+        JSONArray list = new JSONArray();
+        for (Job job : jobs.values()) {
+            try {
+                list.put(new JSONObject()
+                        .put("id", job.id)
+                        .put("fileName", job.fileName)
+                        .put("status", job.status)
+                        .put("priority", job.priority)
+                        .put("received", job.received.get())
+                        .put("total", job.total));
+            } catch (JSONException e) {
+                Log.w(TAG, "Could not describe download " + job.id);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Reloads unfinished downloads from their state files and continues them. Call once at startup.
+     */
+    public void resumeAll() {
+        pool.execute(() -> {
+            File[] dirs = root.listFiles(File::isDirectory);
+            if (dirs == null) {
+                return;
+            }
+            for (File dir : dirs) {
+                if (jobs.containsKey(dir.getName())) {
+                    continue;
+                }
+                Job job = Job.load(dir);
+                if (job == null) {
+                    deleteDir(dir);
+                    continue;
+                }
+                jobs.put(job.id, job);
+            }
+            schedule();
+        });
+    }
+
+    private void start(Job job) {
+        final int generation;
+        synchronized (job) {
+            if (!STATUS_QUEUED.equals(job.status)) {
+                return;
+            }
+            job.status = STATUS_RUNNING;
+            generation = ++job.generation;
+        }
+        pool.execute(() -> {
+            try {
+                if (job.segments == null) {
+                    probe(job);
+                    if (!constraintsMet(job)) {
+                        // Now that the size is known it may be too large for this network
+                        requeue(job);
+                        return;
+                    }
+                }
+                job.save();
+                int count = job.segments.length();
+                job.remaining.set(count / 3);
+                for (int i = 0; i < count / 3; i++) {
+                    final int segment = i;
+                    pool.execute(() -> runSegment(job, segment, generation));
+                }
+            } catch (IOException | JSONException e) {
+                handleError(job, generation, e);
+            }
+        });
+    }
+
+    // Learns size, validators and range support, creates the destination and splits the file
+    private void probe(Job job) throws IOException, JSONException {
+        DownloadIO.Probe probe = DownloadIO.probe(open(job, "bytes=0-0"));
+        long total = probe.total;
+        boolean ranges = probe.ranges;
+        job.etag = probe.etag;
+        job.lastModified = probe.lastModified;
+        if (job.sha256 == null) {
+            job.sha256 = digestHeader(probe.digest);
+        }
+        if (job.mimeType == null) {
+            job.mimeType = probe.contentType;
+        }
+
+        job.total = total;
+        job.ranges = ranges;
+        job.target = createTarget(job);
+        int parts = ranges ? (int) Math.max(1, Math.min(SWVConfig.get().downloadSegments, total / MIN_SEGMENT)) : 1;
+        // Flat triples of start, end (inclusive, -1 = until EOF) and bytes done
+        AtomicLongArray segments = new AtomicLongArray(parts * 3);
+        long size = ranges ? total / parts : 0;
+        for (int i = 0; i < parts; i++) {
+            segments.set(i * 3, i * size);
+            segments.set(i * 3 + 1, !ranges ? -1 : (i == parts - 1 ? total - 1 : (i + 1) * size - 1));
+        }
+        job.segments = segments;
+        Log.d(TAG, "Download " + job.id + ": " + total + " bytes in " + parts + " segment(s)");
+    }
+
+    private void runSegment(Job job, int segment, int generation) {
+        int attempts = 0;
+        while (job.isActive(generation)) {
+            try {
+                fetchSegment(job, segment, generation);
+                if (job.remaining.decrementAndGet() == 0) {
+                    finish(job, generation);
+                }
+                return;
+            } catch (IOException e) {
+                if (!ConnectivityMonitor.isOnline() || isPermanent(e) || ++attempts >= MAX_ATTEMPTS) {
+                    handleError(job, generation, e);
+                    return;
+                }
+                Log.w(TAG, "Segment " + segment + " of " + job.id + " failed, retrying: " + e.getMessage());
+                SystemClock.sleep(1000L << (attempts - 1));
+            }
+        }
+    }
+
+    private void fetchSegment(Job job, int segment, int generation) throws IOException {
+        long start = job.segments.get(segment * 3);
+        long end = job.segments.get(segment * 3 + 1);
+        if (!job.ranges && job.segments.get(segment * 3 + 2) > 0) {
+            // No ranges: the only way to resume is from the start
+            job.received.addAndGet(-job.segments.getAndSet(segment * 3 + 2, 0));
+        }
+        long done = job.segments.get(segment * 3 + 2);
+        if (end >= 0 && start + done > end) {
+            return;
+        }
+        HttpURLConnection connection = open(job, job.ranges ? "bytes=" + (start + done) + "-" + end : null);
+        try (FileChannel channel = openChannel(job)) {
+            DownloadIO.copy(connection, job.ranges, channel, start + done, new DownloadIO.Sink() {
+                long unsaved = 0;
+
+                @Override
+                public boolean isActive() {
+                    return job.isActive(generation);
+                }
+
+                @Override
+                public void onWritten(int count) throws IOException {
+                    job.segments.addAndGet(segment * 3 + 2, count);
+                    job.received.addAndGet(count);
+                    unsaved += count;
+                    if (unsaved >= SAVE_INTERVAL_BYTES) {
+                        unsaved = 0;
+                        try {
+                            job.save();
+                        } catch (JSONException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                    progress(job);
+                }
+            });
+            job.save();
+            if (!job.isActive(generation)) {
+                throw new IOException("Stopped");
+            }
+            if (end >= 0 && start + job.segments.get(segment * 3 + 2) <= end) {
+                throw new IOException("Connection closed early");
+            }
+        } catch (JSONException e) {
+            throw new IOException(e);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void finish(Job job, int generation) {
+        try {
+            long size = targetSize(job);
+            if (job.total >= 0 && size != job.total) {
+                throw new IOException("Size mismatch: expected " + job.total + ", got " + size);
+            }
+            if (job.sha256 != null) {
+                try (InputStream in = openTarget(job)) {
+                    DownloadIO.verify(in, job.sha256);
+                }
+            }
+            complete(job);
+        } catch (IOException e) {
+            handleError(job, generation, e);
+        }
+    }
+
+    private void complete(Job job) {
+        publishTarget(job);
+        synchronized (job) {
+            job.status = STATUS_COMPLETE;
+        }
+        deleteDir(job.dir);
+        jobs.remove(job.id);
+        Log.i(TAG, "Download " + job.id + " complete: " + job.fileName);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", job.id);
+        data.put("fileName", job.fileName);
+        data.put("uri", job.target);
+        emit("download-complete", data);
+        notify(job, context.getString(R.string.dl_complete), -1, true);
+        schedule();
+    }
+
+    private void handleError(Job job, int generation, Exception e) {
+        boolean permanent = isPermanent(e);
+        boolean offline = !permanent && !ConnectivityMonitor.isOnline();
+        boolean retry = false;
+        synchronized (job) {
+            if (!job.isActive(generation)) {
+                return;
+            }
+            // Only one segment reports; the others stop on the status change
+            job.error = e.getMessage();
+            job.remaining.set(0);
+            if (offline) {
+                job.status = STATUS_QUEUED;
+            } else if (!permanent && job.attempts < SWVConfig.get().downloadMaxRetries) {
+                job.attempts++;
+                job.retryAt = System.currentTimeMillis() + Math.min(RETRY_MAX_MS, RETRY_BASE_MS << (job.attempts - 1));
+                job.status = STATUS_QUEUED;
+                retry = true;
+            } else {
+                job.status = STATUS_FAILED;
+            }
+        }
+        if (offline || retry) {
+            try {
+                job.save();
+            } catch (IOException | JSONException ignored) {
+                // The state on disk is at most SAVE_INTERVAL_BYTES behind
+            }
+            Log.i(TAG, "Download " + job.id + (offline ? " waiting for the network" : " retrying in " + (job.retryAt - System.currentTimeMillis()) / 1000 + "s") + ": " + e.getMessage());
+            schedule();
+            return;
+        }
+        fail(job, e.getMessage());
+    }
+
+    // Errors a retry cannot fix: the file changed, failed verification or the server refused it
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof DownloadIO.ChangedException || e instanceof DownloadIO.ChecksumException) {
+            return true;
+        }
+        if (e instanceof DownloadIO.HttpException) {
+            int status = ((DownloadIO.HttpException) e).status;
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+        return false;
+    }
+
+    // Failed downloads are not resumed; drop the partial file and its state
+    private void fail(Job job, String error) {
+        Log.w(TAG, "Download " + job.id + " failed: " + error);
+        deleteTarget(job);
+        deleteDir(job.dir);
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", job.id);
+        data.put("error", error);
+        emit("download-failed", data);
+        NotificationManagerCompat.from(context).cancel(TAG, job.notificationId());
+        schedule();
+    }
+
+    // Events at most every PROGRESS_INTERVAL_MS per download, the notification every NOTIFY_INTERVAL_MS
+    private void progress(Job job) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - job.lastProgress < PROGRESS_INTERVAL_MS) {
+            return;
+        }
+        job.lastProgress = now;
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", job.id);
+        data.put("received", job.received.get());
+        data.put("total", job.total);
+        emit("download-progress", data);
+        if (now - job.lastNotify >= NOTIFY_INTERVAL_MS) {
+            job.lastNotify = now;
+            int percent = job.total > 0 ? (int) (job.received.get() * 100 / job.total) : -1;
+            notify(job, context.getString(R.string.dl_downloading), percent, false);
+        }
+    }
+
+    private void emit(String event, Map<String, Object> data) {
+        PluginExecutor.runOnMain(() -> {
+            MessageBus bus = SWVContext.getPluginManager().getMessageBus();
+            if (bus != null) {
+                bus.emit(event, data);
+            }
+        });
+    }
+
+    private void notify(Job job, String text, int percent, boolean done) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager system = context.getSystemService(NotificationManager.class);
+            if (system.getNotificationChannel(CHANNEL) == null) {
+                system.createNotificationChannel(new NotificationChannel(CHANNEL, context.getString(R.string.dl_channel), NotificationManager.IMPORTANCE_LOW));
+            }
+        }
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL)
+                .setSmallIcon(done ? android.R.drawable.stat_sys_download_done : android.R.drawable.stat_sys_download)
+                .setContentTitle(job.fileName)
+                .setContentText(text)
+                .setOnlyAlertOnce(true)
+                .setOngoing(!done)
+                .setAutoCancel(done);
+        if (!done) {
+            builder.setProgress(100, Math.max(percent, 0), percent < 0);
+        }
+        try {
+            manager.notify(TAG, job.notificationId(), builder.build());
+        } catch (SecurityException e) {
+            // POST_NOTIFICATIONS was revoked; downloads go on without a notification
+        }
+    }
+
+    private HttpURLConnection open(Job job, String range) throws IOException {
+        return DownloadIO.open(job.url, job.userAgent, CookieManager.getInstance().getCookie(job.url), range, job.etag, job.lastModified);
+    }
+
+    // Destination: a pending MediaStore download (Android 10+) or a file in the public Downloads folder
+    private String createTarget(Job job) throws IOException {
+        if (job.target != null) {
+            return job.target;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Downloads.DISPLAY_NAME, job.fileName);
+            if (job.mimeType != null) {
+                values.put(MediaStore.Downloads.MIME_TYPE, job.mimeType);
+            }
+            values.put(MediaStore.Downloads.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+            values.put(MediaStore.Downloads.IS_PENDING, 1);
+            Uri uri = context.getContentResolver().insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+            if (uri == null) {
+                throw new IOException("Cannot create download entry");
+            }
+            return uri.toString();
+        }
+        File dir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = new File(dir, job.fileName);
+        int dot = job.fileName.lastIndexOf('.');
+        String base = dot > 0 ? job.fileName.substring(0, dot) : job.fileName;
+        String extension = dot > 0 ? job.fileName.substring(dot) : "";
+        for (int n = 1; !file.createNewFile(); n++) {
+            file = new File(dir, base + " (" + n + ")" + extension);
+        }
+        return file.getAbsolutePath();
+    }
+
+    // Each segment writes through its own channel at absolute positions
+    private FileChannel openChannel(Job job) throws IOException {
+        if (job.target.startsWith(ContentResolver.SCHEME_CONTENT)) {
+            ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(Uri.parse(job.target), "rw");
+            if (descriptor == null) {
+                throw new FileNotFoundException(job.target);
+            }
+            return new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel();
+        }
+        return new RandomAccessFile(job.target, "rw").getChannel();
+    }
+
+    private long targetSize(Job job) throws IOException {
+        try (FileChannel channel = openChannel(job)) {
+            return channel.size();
+        }
+    }
+
+    private InputStream openTarget(Job job) throws IOException {
+        if (job.target.startsWith(ContentResolver.SCHEME_CONTENT)) {
+            InputStream in = context.getContentResolver().openInputStream(Uri.parse(job.target));
+            if (in == null) {
+                throw new FileNotFoundException(job.target);
+            }
+            return in;
+        }
+        return new FileInputStream(job.target);
+    }
+
+    private void publishTarget(Job job) {
+        if (job.target.startsWith(ContentResolver.SCHEME_CONTENT)) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Downloads.IS_PENDING, 0);
+            context.getContentResolver().update(Uri.parse(job.target), values, null, null);
+        } else {
+            MediaScannerConnection.scanFile(context, new String[]{job.target}, job.mimeType != null ? new String[]{job.mimeType} : null, null);
+        }
+    }
+
+    private void deleteTarget(Job job) {
+        if (job.target == null) {
+            return;
+        }
+        if (job.target.startsWith(ContentResolver.SCHEME_CONTENT)) {
+            context.getContentResolver().delete(Uri.parse(job.target), null, null);
+        } else {
+            new File(job.target).delete();
+        }
+    }
+
+    // "Digest: sha-256=<base64>" as hex, or null
+    private static String digestHeader(String header) {
+        if (header == null) {
+            return null;
+        }
+        for (String part : header.split(",")) {
+            String value = part.trim();
+            if (value.regionMatches(true, 0, "sha-256=", 0, 8)) {
+                try {
+                    return DownloadIO.toHex(Base64.decode(value.substring(8), Base64.DEFAULT));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    // The characters of a String from an offset as single bytes, for decoding data: URLs without a copy
+    private static final class AsciiInputStream extends InputStream {
+        private final String source;
+        private int position;
+
+        AsciiInputStream(String source, int position) {
+            this.source = source;
+            this.position = position;
+        }
+
+        @Override
+        public int read() {
+            return position < source.length() ? source.charAt(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= source.length()) {
+                return -1;
+            }
+            int count = Math.min(length, source.length() - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) source.charAt(position++);
+            }
+            return count;
+        }
+    }
+
+    private static final class Job {
+        final String id;
+        final File dir;
+        final AtomicLong received = new AtomicLong();
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile boolean cancelled = false;
+        volatile String status = STATUS_QUEUED;
+        // Bumped on every start, so segments of an earlier run stop instead of racing the new ones
+        volatile int generation;
+        String url;
+        String userAgent;
+        String fileName;
+        String mimeType;
+        String sha256;
+        String etag;
+        String lastModified;
+        String target;
+        String error;
+        int priority = PRIORITY_NORMAL;
+        boolean unmeteredOnly;
+        boolean chargingOnly;
+        long created = System.currentTimeMillis();
+        // Backoff retries used so far, and when the next one may start (wall clock, survives restarts)
+        int attempts;
+        long retryAt;
+        long total = -1;
+        boolean ranges;
+        volatile AtomicLongArray segments;
+        long lastProgress;
+        long lastNotify;
+
+        Job(String id, File dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+
+        boolean isActive(int run) {
+            return !cancelled && run == generation && STATUS_RUNNING.equals(status);
+        }
+
+        int notificationId() {
+            return id.hashCode();
+        }
+
+        synchronized void save() throws IOException, JSONException {
+            if (cancelled) {
+                return;
+            }
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            JSONObject state = new JSONObject();
+            state.put("id", id);
+            state.put("url", url);
+            state.put("userAgent", userAgent);
+            state.put("fileName", fileName);
+            state.put("mimeType", mimeType);
+            state.put("sha256", sha256);
+            state.put("etag", etag);
+            state.put("lastModified", lastModified);
+            state.put("target", target);
+            state.put("status", status);
+            state.put("error", error);
+            state.put("priority", priority);
+            state.put("unmeteredOnly", unmeteredOnly);
+            state.put("chargingOnly", chargingOnly);
+            state.put("created", created);
+            state.put("attempts", attempts);
+            state.put("retryAt", retryAt);
+            state.put("total", total);
+            state.put("ranges", ranges);
+            if (segments != null) {
+                JSONArray list = new JSONArray();
+                for (int i = 0; i < segments.length(); i++) {
+                    list.put(segments.get(i));
+                }
+                state.put("segments", list);
+            }
+            AtomicFile file = new AtomicFile(new File(dir, STATE_FILE));
+            FileOutputStream out = file.startWrite();
+            try {
+                out.write(state.toString().getBytes(StandardCharsets.UTF_8));
+                file.finishWrite(out);
+            } catch (IOException e) {
+                file.failWrite(out);
+                throw e;
+            }
+        }
+
+        static Job load(File dir) {
+            try {
+                JSONObject state = new JSONObject(new String(new AtomicFile(new File(dir, STATE_FILE)).readFully(), StandardCharsets.UTF_8));
+                Job job = new Job(state.getString("id"), dir);
+                job.url = state.getString("url");
+                job.userAgent = state.optString("userAgent", null);
+                job.fileName = state.optString("fileName", "download");
+                job.mimeType = state.optString("mimeType", null);
+                job.sha256 = state.optString("sha256", null);
+                job.etag = state.optString("etag", null);
+                job.lastModified = state.optString("lastModified", null);
+                job.target = state.optString("target", null);
+                job.status = state.optString("status", STATUS_QUEUED);
+                job.error = state.optString("error", null);
+                job.priority = state.optInt("priority", PRIORITY_NORMAL);
+                job.unmeteredOnly = state.optBoolean("unmeteredOnly");
+                job.chargingOnly = state.optBoolean("chargingOnly");
+                job.created = state.optLong("created", job.created);
+                job.attempts = state.optInt("attempts");
+                job.retryAt = state.optLong("retryAt");
+                job.total = state.optLong("total", -1);
+                job.ranges = state.optBoolean("ranges");
+                JSONArray list = state.optJSONArray("segments");
+                if (list != null && job.target != null) {
+                    AtomicLongArray segments = new AtomicLongArray(list.length());
+                    long received = 0;
+                    for (int i = 0; i < list.length(); i++) {
+                        segments.set(i, list.getLong(i));
+                        if (i % 3 == 2) received += segments.get(i);
+                    }
+                    job.segments = segments;
+                    job.received.set(received);
+                }
+                // A process death mid-run leaves "running" behind
+                if (STATUS_RUNNING.equals(job.status)) {
+                    job.status = STATUS_QUEUED;
+                }
+                return job;
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Dropping unreadable download state in " + dir.getName());
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * The parts of DownloadEngine that need no Android types: file naming, the ranged HTTP requests and
+ * the checksum. Kept apart so they can be exercised against a local server in plain JVM tests.
+ */
+final class DownloadIO {
+
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private DownloadIO() {}
+
+    /**
+     * What a one-byte Range probe learned about a file.
+     */
+    static final class Probe {
+        final long total;
+        final boolean ranges;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        final String digest;
+
+        Probe(long total, boolean ranges, String etag, String lastModified, String contentType, String digest) {
+            this.total = total;
+            this.ranges = ranges;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Receives the bytes of one range as they are written.
+     */
+    interface Sink {
+        // False stops the transfer after the current buffer
+        boolean isActive();
+
+        void onWritten(int count) throws IOException;
+    }
+
+    static final class HttpException extends IOException {
+        final int status;
+
+        HttpException(int status) {
+            super("HTTP " + status);
+            this.status = status;
+        }
+    }
+
+    static final class ChangedException extends IOException {
+        ChangedException() {
+            super("The file changed on the server; start the download again");
+        }
+    }
+
+    static final class ChecksumException extends IOException {
+        ChecksumException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Reduces a name from the page or the server to a plain file name: the last path segment, without
+     * control and reserved characters or leading dots, so it can't leave the Downloads folder.
+     */
+    static String safeFileName(String name) {
+        if (name == null) {
+            return "download";
+        }
+        String base = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        StringBuilder clean = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            clean.append(c < 0x20 || c == 0x7f || ":*?\"<>|".indexOf(c) >= 0 ? '_' : c);
+        }
+        String result = clean.toString().trim();
+        while (result.startsWith(".")) {
+            result = result.substring(1);
+        }
+        if (result.length() > MAX_NAME_LENGTH) {
+            int dot = result.lastIndexOf('.');
+            String extension = dot > 0 && result.length() - dot <= 16 ? result.substring(dot) : "";
+            result = result.substring(0, MAX_NAME_LENGTH - extension.length()) + extension;
+        }
+        return result.trim().isEmpty() ? "download" : result;
+    }
+
+    /**
+     * Opens a GET for the file. With a range, If-Range carries the strong ETag (or Last-Modified) from
+     * the probe, so a file that changed answers 200 instead of splicing new bytes onto old ones.
+     */
+    static HttpURLConnection open(String url, String userAgent, String cookies, String range,
+                                  String etag, String lastModified) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setUseCaches(false);
+        // Byte offsets have to match the stored file
+        connection.setRequestProperty("Accept-Encoding", "identity");
+        if (userAgent != null) {
+            connection.setRequestProperty("User-Agent", userAgent);
+        }
+        if (cookies != null && !cookies.isEmpty()) {
+            connection.setRequestProperty("Cookie", cookies);
+        }
+        if (range != null) {
+            connection.setRequestProperty("Range", range);
+            String validator = etag != null && !etag.startsWith("W/") ? etag : lastModified;
+            if (validator != null) {
+                connection.setRequestProperty("If-Range", validator);
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the response to a "bytes=0-0" request and disconnects. total is -1 when unknown.
+     */
+    static Probe probe(HttpURLConnection connection) throws IOException {
+        try {
+            int status = connection.getResponseCode();
+            long total;
+            boolean ranges;
+            if (status == HttpURLConnection.HTTP_PARTIAL) {
+                String range = connection.getHeaderField("Content-Range");
+                int slash = range != null ? range.lastIndexOf('/') : -1;
+                total = slash >= 0 && !range.endsWith("*") ? Long.parseLong(range.substring(slash + 1).trim()) : -1;
+                ranges = total > 0;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                total = connection.getContentLengthLong();
+                ranges = false;
+            } else {
+                throw new HttpException(status);
+            }
+            return new Probe(total, ranges, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"),
+                    connection.getContentType(), connection.getHeaderField("Digest"));
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad Content-Range");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Writes the response body into the channel from position on. A ranged request has to come back as
+     * 206; anything else means If-Range failed and the file changed.
+     * @return the position after the last byte written
+     */
+    static long copy(HttpURLConnection connection, boolean ranged, FileChannel channel, long position, Sink sink) throws IOException {
+        int status = connection.getResponseCode();
+        if (ranged && status != HttpURLConnection.HTTP_PARTIAL) {
+            throw new ChangedException();
+        }
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL) {
+            throw new HttpException(status);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = connection.getInputStream()) {
+            int read;
+            while (sink.isActive() && (read = in.read(buffer)) != -1) {
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+                sink.onWritten(read);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Throws ChecksumException unless the stream's SHA-256 is the expected lower-case hex digest.
+     */
+    static void verify(InputStream in, String sha256) throws IOException {
+        String actual = sha256(in);
+        if (!actual.equals(sha256)) {
+            throw new ChecksumException("Checksum mismatch: expected " + sha256 + ", got " + actual);
+        }
+    }
+
+    static String sha256(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -19,29 +19,61 @@ package mgks.os.swv;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Environment;
+import android.os.Process;
 import android.provider.MediaStore;
+import android.provider.OpenableColumns;
 import android.util.Log;
 
+import android.webkit.MimeTypeMap;
 import android.webkit.ValueCallback;
 import android.webkit.WebChromeClient;
 import android.webkit.WebView;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.core.content.FileProvider;
+import androidx.exifinterface.media.ExifInterface;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FileProcessing {
 
+	private static final String TAG = "FileProcessing";
+	private static final String UPLOAD_DIR = "swv_uploads";
+	private static final long UPLOAD_MAX_AGE_MS = 60 * 60 * 1000;
+
+	// Decodes are memory-heavy, so images are processed one at a time
+	private static final ExecutorService image_executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(() -> {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			r.run();
+		}, "swv-images");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	private final Activity activity;
 	private final ActivityResultLauncher<Intent> resultLauncher; // Launcher is now passed in
 	Functions fns = new Functions();
@@ -55,7 +87,7 @@ public class FileProcessing {
 	// The registerActivityResultLauncher() method is now removed from this class.
 
 	public boolean onShowFileChooser(WebView webView, ValueCallback<Uri[]> filePathCallback, WebChromeClient.FileChooserParams fileChooserParams) {
-		if (!SWVContext.ASWP_FUPLOAD) {
+		if (!SWVConfig.get().uploads) {
 			return false;
 		}
 
@@ -84,7 +116,7 @@ public class FileProcessing {
 		Intent takePictureIntent = null;
 		Intent takeVideoIntent = null;
 
-		if (SWVContext.ASWP_CAMUPLOAD) {
+		if (SWVConfig.get().cameraUploads) {
 			PermissionManager permissionManager = new PermissionManager(activity); // Create instance here
 			if (!permissionManager.isCameraPermissionGranted()) {
 				permissionManager.requestCameraPermission();
@@ -140,7 +172,7 @@ public class FileProcessing {
 			contentSelectionIntent.putExtra(Intent.EXTRA_MIME_TYPES, acceptTypes); // And specific types
 		}
 
-		if (SWVContext.ASWP_MULFILE) {
+		if (SWVConfig.get().multipleUploads) {
 			contentSelectionIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
 		}
 
@@ -167,6 +199,190 @@ public class FileProcessing {
 		return true;
 	}
 
+	/**
+	 * Cache folder holding the re-encoded copies process_uploads hands out as file:// URIs.
+	 */
+	public static File processed_dir(Context context) {
+		return new File(context.getCacheDir(), UPLOAD_DIR);
+	}
+
+	/**
+	 * Prepares picked or captured files for upload on a background thread and hands the result to the callback
+	 * on the main thread. Images are decoded with subsampling, resized to upload.image.max.dimension, turned
+	 * upright from their EXIF orientation and re-encoded into the cache; other files, and images that fail
+	 * to process, are passed through unchanged.
+	 */
+	public static void process_uploads(Context context, Uri[] uris, ValueCallback<Uri[]> callback) {
+		SWVConfig config = SWVConfig.get();
+		if (uris == null || uris.length == 0 || !config.uploadImageEnabled) {
+			callback.onReceiveValue(uris);
+			return;
+		}
+		final Context appContext = context.getApplicationContext();
+		image_executor.execute(() -> {
+			File dir = processed_dir(appContext);
+			clean_uploads(dir);
+			Uri[] results = new Uri[uris.length];
+			for (int i = 0; i < uris.length; i++) {
+				results[i] = uris[i];
+				try {
+					File output = process_image(appContext, uris[i], new File(dir, Long.toString(System.currentTimeMillis(), 36) + "-" + i), config);
+					if (output != null) {
+						results[i] = Uri.fromFile(output);
+					}
+				} catch (IOException | RuntimeException | OutOfMemoryError e) {
+					Log.w(TAG, "Uploading original, processing failed: " + e.getMessage());
+				}
+			}
+			PluginExecutor.runOnMain(() -> callback.onReceiveValue(results));
+		});
+	}
+
+	// Returns the processed copy, or null when the original should be uploaded as it is
+	private static File process_image(Context context, Uri uri, File dir, SWVConfig config) throws IOException {
+		ContentResolver resolver = context.getContentResolver();
+		String mime = "file".equals(uri.getScheme())
+				? MimeTypeMap.getSingleton().getMimeTypeFromExtension(MimeTypeMap.getFileExtensionFromUrl(uri.toString()).toLowerCase(Locale.ROOT))
+				: resolver.getType(uri);
+		// GIFs may be animated and SVGs are not bitmaps
+		if (mime == null || !mime.startsWith("image/") || mime.equals("image/gif") || mime.startsWith("image/svg")) {
+			return null;
+		}
+
+		BitmapFactory.Options bounds = new BitmapFactory.Options();
+		bounds.inJustDecodeBounds = true;
+		try (InputStream in = open(resolver, uri)) {
+			BitmapFactory.decodeStream(in, null, bounds);
+		}
+		if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+			return null;
+		}
+
+		ExifInterface exif;
+		try (InputStream in = open(resolver, uri)) {
+			exif = new ExifInterface(in);
+		}
+		int rotation = exif.getRotationDegrees();
+		boolean flipped = exif.isFlipped();
+		boolean webp = "webp".equals(config.uploadImageFormat);
+		int max = config.uploadImageMaxDimension;
+		int longest = Math.max(bounds.outWidth, bounds.outHeight);
+		if (longest <= max && rotation == 0 && !flipped) {
+			// Already small and upright, whatever the format; re-encoding would only lose quality
+			return null;
+		}
+
+		// Largest power-of-two subsample that still leaves at least max pixels on the long side
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inSampleSize = 1;
+		while (longest / (options.inSampleSize * 2) >= max) {
+			options.inSampleSize *= 2;
+		}
+		Bitmap decoded;
+		try (InputStream in = open(resolver, uri)) {
+			decoded = BitmapFactory.decodeStream(in, null, options);
+		}
+		if (decoded == null) {
+			return null;
+		}
+
+		// Final scale, rotation and mirroring in one pass
+		float scale = Math.min(1f, (float) max / Math.max(decoded.getWidth(), decoded.getHeight()));
+		Matrix matrix = new Matrix();
+		matrix.postScale(scale, scale);
+		matrix.postRotate(rotation);
+		if (flipped) {
+			matrix.postScale(-1, 1);
+		}
+		Bitmap upright = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+		if (upright != decoded) {
+			decoded.recycle();
+		}
+
+		if (!dir.exists() && !dir.mkdirs()) {
+			upright.recycle();
+			throw new IOException("Cannot create " + dir);
+		}
+		// Transparency stays lossless: JPEG has no alpha and lossy WebP smears edges, so PNG or lossless WebP
+		boolean alpha = upright.hasAlpha();
+		Bitmap.CompressFormat format;
+		String extension;
+		if (webp && (!alpha || Build.VERSION.SDK_INT >= Build.VERSION_CODES.R)) {
+			format = Build.VERSION.SDK_INT < Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP
+					: alpha ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP_LOSSY;
+			extension = ".webp";
+		} else if (alpha) {
+			format = Bitmap.CompressFormat.PNG;
+			extension = ".png";
+		} else {
+			format = Bitmap.CompressFormat.JPEG;
+			extension = ".jpg";
+		}
+		File output = new File(dir, base_name(resolver, uri) + extension);
+		try (OutputStream out = new FileOutputStream(output)) {
+			// Quality is ignored by the lossless formats
+			if (!upright.compress(format, config.uploadImageQuality, out)) {
+				throw new IOException("Encoding failed");
+			}
+		} finally {
+			upright.recycle();
+		}
+		Log.d(TAG, "Upload image " + bounds.outWidth + "x" + bounds.outHeight + " -> " + output.getName() + ", " + output.length() / 1024 + " KB");
+		return output;
+	}
+
+	private static InputStream open(ContentResolver resolver, Uri uri) throws IOException {
+		InputStream in = resolver.openInputStream(uri);
+		if (in == null) {
+			throw new FileNotFoundException(uri.toString());
+		}
+		return new BufferedInputStream(in, 64 * 1024);
+	}
+
+	// The picked file's name without extension, so the page still sees a meaningful name
+	private static String base_name(ContentResolver resolver, Uri uri) {
+		String name = null;
+		if ("content".equals(uri.getScheme())) {
+			try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+				if (cursor != null && cursor.moveToFirst()) {
+					name = cursor.getString(0);
+				}
+			} catch (RuntimeException e) {
+				// Some providers do not answer queries; fall back to the path
+			}
+		}
+		if (name == null) {
+			name = uri.getLastPathSegment();
+		}
+		if (name == null || name.isEmpty()) {
+			return "image";
+		}
+		// Providers choose DISPLAY_NAME; a name like "../x" must not leave the batch folder
+		name = DownloadIO.safeFileName(name);
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	// Removes processed images of earlier pickers; the page has read them long since
+	private static void clean_uploads(File dir) {
+		File[] batches = dir.listFiles();
+		if (batches == null) {
+			return;
+		}
+		long cutoff = System.currentTimeMillis() - UPLOAD_MAX_AGE_MS;
+		for (File batch : batches) {
+			if (batch.lastModified() < cutoff) {
+				File[] files = batch.listFiles();
+				if (files != null) {
+					for (File file : files) {
+						file.delete();
+					}
+				}
+				batch.delete();
+			}
+		}
+	}
+
 	// Creating image file for upload
 	public static File create_image(Context context) throws IOException {
 		@SuppressLint("SimpleDateFormat")
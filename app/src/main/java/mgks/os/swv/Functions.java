@@ -26,6 +26,8 @@ import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.media.RingtoneManager;
 import android.net.ConnectivityManager;
@@ -38,7 +40,6 @@ import android.print.PrintJob;
 import android.print.PrintManager;
 import android.provider.Settings;
 import android.util.Log;
-import android.webkit.CookieManager;
 import android.webkit.WebView;
 import android.widget.Toast;
 
@@ -46,16 +47,98 @@ import androidx.browser.customtabs.CustomTabsIntent;
 import androidx.core.app.NotificationCompat;
 
 import java.lang.reflect.Field;
-import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
 public class Functions {
-    private final SecureRandom random = new SecureRandom();
+    private static SecureRandom random;
+    private static String session_token;
+    private static String version_token;
+    // Tokens this process appended as rid=, so strip_rid leaves a site's own rid parameter alone
+    private static final Set<String> appended_tokens = new LinkedHashSet<>();
+    private static final int MAX_APPENDED_TOKENS = 32;
+    private static final AtomicBoolean info_cookies_set = new AtomicBoolean(false);
+    // Waits for the connection when the info cookies came due while offline
+    private static ConnectivityMonitor.Listener info_cookies_retry;
 
     // Random ID creation function to help get fresh cache every-time webview reloaded
     public String random_id() {
-        return new BigInteger(130, random).toString(32);
+        if (random == null) {
+            random = new SecureRandom();
+        }
+        return Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+    }
+
+    // Cache-busting token for the configured policy, null when URLs should be left untouched
+    String cache_token(Context context) {
+        switch (SWVConfig.get().cacheBustMode) {
+            case "load":
+                return random_id();
+            case "session":
+                if (session_token == null) {
+                    session_token = random_id();
+                }
+                return session_token;
+            case "version":
+                if (version_token == null) {
+                    try {
+                        PackageInfo pInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+                        version_token = pInfo.versionName + "." + pInfo.versionCode;
+                    } catch (PackageManager.NameNotFoundException e) {
+                        version_token = "0";
+                    }
+                }
+                return version_token;
+            default:
+                return null;
+        }
+    }
+
+    // Remembering a token about to be appended, so strip_rid recognises it later
+    private static void remember_token(String token) {
+        synchronized (appended_tokens) {
+            appended_tokens.remove(token);
+            appended_tokens.add(token);
+            if (appended_tokens.size() > MAX_APPENDED_TOKENS) {
+                Iterator<String> oldest = appended_tokens.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    // Removing a rid parameter this app appended, so reloads don't stack them up; other rid values are kept
+    static String strip_rid(String url) {
+        int rid = url.indexOf("rid=");
+        while (rid > 0) {
+            char sep = url.charAt(rid - 1);
+            int end = url.indexOf('&', rid);
+            int frag = url.indexOf('#', rid);
+            if (end < 0 || (frag >= 0 && frag < end)) {
+                end = frag;
+            }
+            boolean ours;
+            synchronized (appended_tokens) {
+                ours = appended_tokens.contains(end < 0 ? url.substring(rid + 4) : url.substring(rid + 4, end));
+            }
+            if ((sep == '?' || sep == '&') && ours) {
+                if (end < 0) {
+                    url = url.substring(0, rid - 1);
+                } else if (url.charAt(end) == '&') {
+                    url = url.substring(0, rid) + url.substring(end + 1);
+                } else {
+                    url = url.substring(0, rid - 1) + url.substring(end);
+                }
+                rid = url.indexOf("rid=");
+            } else {
+                rid = url.indexOf("rid=", rid + 4);
+            }
+        }
+        return url;
     }
 
     // Printing the page in view
@@ -78,7 +161,8 @@ public class Functions {
         }
     }
 
-    // Checking if internet/network is available
+    // Checking if internet/network is available; this queries ConnectivityManager directly,
+    // hot paths should read ConnectivityMonitor.isOnline() instead
     public static boolean isInternetAvailable(Context context) {
         ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
         if (connectivityManager == null) {
@@ -103,7 +187,7 @@ public class Functions {
             exit_app(activity);
         } else {
             if (tab) {
-                if (SWVContext.ASWP_TAB) {
+                if (SWVConfig.get().chromeTabs) {
                     CustomTabsIntent.Builder intentBuilder = new CustomTabsIntent.Builder();
                     intentBuilder.setStartAnimations(activity, android.R.anim.slide_in_left, android.R.anim.slide_out_right);
                     intentBuilder.setExitAnimations(activity, android.R.anim.slide_in_left, android.R.anim.slide_out_right);
@@ -122,7 +206,15 @@ public class Functions {
                 }
             } else {
                 if (!url.startsWith("file://")) {
-                    url = url + (url.contains("?") ? "&" : "?") + "rid=" + random_id();
+                    String token = cache_token(activity);
+                    if (token != null) {
+                        url = strip_rid(url);
+                        remember_token(token);
+                        int frag = url.indexOf('#');
+                        String fragment = frag >= 0 ? url.substring(frag) : "";
+                        String base = frag >= 0 ? url.substring(0, frag) : url;
+                        url = base + (base.contains("?") ? "&" : "?") + "rid=" + token + fragment;
+                    }
                 }
                 SWVContext.asw_view.loadUrl(url);
             }
@@ -157,63 +249,67 @@ public class Functions {
 
     // URL actions based on URL structure
     public boolean url_actions(WebView view, String url, Activity activity) {
-        boolean a = true;
         Context context = activity.getApplicationContext();
+        SWVConfig config = SWVConfig.get();
 
-        if (!SWVContext.ASWP_OFFLINE && !isInternetAvailable(context)) {
+        if (!SWVContext.ASWP_OFFLINE && !ConnectivityMonitor.isOnline()) {
             Toast.makeText(context, context.getString(R.string.check_connection), Toast.LENGTH_SHORT).show();
             return true;
         }
 
-        if (url.startsWith("refresh:")) {
-            String ref_sch = (Uri.parse(url).toString()).replace("refresh:", "");
-            if (ref_sch.matches("URL")) {
-                SWVContext.CURR_URL = SWVContext.ASWV_URL;
+        switch (config.router.route(url)) {
+            case UrlRouter.ROUTE_REFRESH: {
+                String ref_sch = (Uri.parse(url).toString()).replace("refresh:", "");
+                if (ref_sch.matches("URL")) {
+                    SWVContext.CURR_URL = SWVContext.ASWV_URL;
+                }
+                pull_fresh(activity);
+                return true;
             }
-            pull_fresh(activity);
-            return true;
 
-        } else if (url.startsWith("tel:")) {
-            try {
-                Intent intent = new Intent(Intent.ACTION_DIAL, Uri.parse(url));
-                activity.startActivity(intent);
-            } catch (ActivityNotFoundException e) {
-                Toast.makeText(context, "No dialer app found.", Toast.LENGTH_SHORT).show();
-            }
-            return true;
+            case UrlRouter.ROUTE_TEL:
+                try {
+                    Intent intent = new Intent(Intent.ACTION_DIAL, Uri.parse(url));
+                    activity.startActivity(intent);
+                } catch (ActivityNotFoundException e) {
+                    Toast.makeText(context, "No dialer app found.", Toast.LENGTH_SHORT).show();
+                }
+                return true;
 
-        } else if (url.startsWith("rate:")) {
-            final String app_package = context.getPackageName();
-            try {
-                activity.startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse("market://details?id=" + app_package)));
-            } catch (ActivityNotFoundException anfe) {
-                activity.startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse("https://play.google.com/store/apps/details?id=" + app_package)));
+            case UrlRouter.ROUTE_RATE: {
+                final String app_package = context.getPackageName();
+                try {
+                    activity.startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse("market://details?id=" + app_package)));
+                } catch (ActivityNotFoundException anfe) {
+                    activity.startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse("https://play.google.com/store/apps/details?id=" + app_package)));
+                }
+                return true;
             }
-            return true;
-
-        } else if (url.startsWith("share:")) {
-            Intent intent = new Intent(Intent.ACTION_SEND);
-            intent.setType("text/plain");
-            intent.putExtra(Intent.EXTRA_SUBJECT, view.getTitle());
-            intent.putExtra(Intent.EXTRA_TEXT, view.getTitle() + " Visit: " + (Uri.parse(url).toString()).replace("share:", ""));
-            activity.startActivity(Intent.createChooser(intent, context.getString(R.string.share_w_friends)));
-            return true;
 
-        } else if (url.startsWith("exit:")) {
-            exit_app(activity);
-            return true;
+            case UrlRouter.ROUTE_SHARE: {
+                Intent intent = new Intent(Intent.ACTION_SEND);
+                intent.setType("text/plain");
+                intent.putExtra(Intent.EXTRA_SUBJECT, view.getTitle());
+                intent.putExtra(Intent.EXTRA_TEXT, view.getTitle() + " Visit: " + (Uri.parse(url).toString()).replace("share:", ""));
+                activity.startActivity(Intent.createChooser(intent, context.getString(R.string.share_w_friends)));
+                return true;
+            }
 
-        } else if (url.startsWith("print:")) {
-            print_page(view, view.getTitle(), activity);
-            return true;
-        }
+            case UrlRouter.ROUTE_EXIT:
+                exit_app(activity);
+                return true;
 
-        if (url.startsWith("http:") || url.startsWith("https:")) {
-            if (SWVContext.ASWP_EXTURL && !aswm_host(url).equals(SWVContext.ASWV_HOST) && !SWVContext.ASWV_EXC_LIST.contains(aswm_host(url))) {
-                aswm_view(url, true, SWVContext.asw_error_counter, activity);
+            case UrlRouter.ROUTE_PRINT:
+                print_page(view, view.getTitle(), activity);
                 return true;
-            }
-            return false;
+
+            case UrlRouter.ROUTE_WEB:
+                // Hosts outside the app host and exception list (incl. their subdomains) open externally
+                if (config.openExternalUrls && !config.router.isInternal(url)) {
+                    aswm_view(url, true, SWVContext.asw_error_counter, activity);
+                    return true;
+                }
+                return false;
         }
 
         try {
@@ -223,7 +319,7 @@ public class Functions {
 
         } catch (ActivityNotFoundException e) {
             Log.w("URL_SCHEME_ERROR", "Could not handle unknown URL scheme: " + url, e);
-            if (SWVContext.SWV_DEBUGMODE) {
+            if (SWVConfig.get().debugMode) {
                 Toast.makeText(context, "Unhandled URL scheme: " + url, Toast.LENGTH_SHORT).show();
             }
             return true;
@@ -245,8 +341,11 @@ public class Functions {
         end = end >= 0 ? end : url.length();
         int port = url.indexOf(':', dslash);
         end = (port > 0 && port < end) ? port : end;
-        Log.i("SLOG_URL_HOST", url.substring(dslash, end));
-        return url.substring(dslash, end);
+        String host = url.substring(dslash, end);
+        if (SWVConfig.get().debugMode) {
+            Log.d("SLOG_URL_HOST", host);
+        }
+        return host;
     }
 
     // Reloading current page
@@ -274,30 +373,47 @@ public class Functions {
         }
     }
 
+    // Queued in CookieStore; consecutive calls are written and flushed together
     public void set_cookie(String data) {
         if(SWVContext.true_online) {
-            SWVContext.cookie_manager = CookieManager.getInstance();
-            SWVContext.cookie_manager.setAcceptCookie(true);
-            SWVContext.cookie_manager.setCookie(SWVContext.ASWV_URL, data);
-            if(SWVContext.SWV_DEBUGMODE) {
-                Log.d("SLOG_COOKIES", SWVContext.cookie_manager.getCookie(SWVContext.ASWV_URL));
-            }
+            CookieStore.set(SWVContext.ASWV_URL, data);
         }
     }
 
-    public String[] get_info(Context context) {
-        String[] info = new String[3];
-        info[0] = "android";
-        info[1] = new MetaPull(context).device();
-        info[2] = new MetaPull(context).swv();
-
+    // Device and app details as cookies, written once per process when MetaPull has them
+    public void get_info(Context context) {
         SWVContext.ASWP_DARK_MODE = is_night_mode(context);
 
-        set_cookie("DEVICE_TYPE=" + info[0]);
-        set_cookie("DEVICE_INFO=" + info[1]);
-        set_cookie("APP_INFO=" + info[2]);
+        Context app = context.getApplicationContext();
+        MetaPull.whenReady(app, () -> set_info_cookies(app));
+    }
 
-        return info;
+    private void set_info_cookies(Context context) {
+        synchronized (info_cookies_set) {
+            // set_cookie is a no-op offline, so the flag is only taken once the cookies can be written
+            if (!SWVContext.true_online) {
+                if (info_cookies_retry == null && !info_cookies_set.get()) {
+                    info_cookies_retry = snapshot -> {
+                        if (snapshot.online) {
+                            synchronized (info_cookies_set) {
+                                ConnectivityMonitor.removeListener(info_cookies_retry);
+                                info_cookies_retry = null;
+                            }
+                            set_info_cookies(context);
+                        }
+                    };
+                    ConnectivityMonitor.addListener(info_cookies_retry);
+                }
+                return;
+            }
+            if (!info_cookies_set.compareAndSet(false, true)) {
+                return;
+            }
+        }
+        MetaPull meta = new MetaPull(context);
+        set_cookie("DEVICE_TYPE=android");
+        set_cookie("DEVICE_INFO=" + meta.device());
+        set_cookie("APP_INFO=" + meta.swv());
     }
 
     public static boolean is_night_mode(Context context) {
@@ -305,30 +421,13 @@ public class Functions {
         return nightModeFlags == Configuration.UI_MODE_NIGHT_YES;
     }
 
+    // Value of the cookie with exactly this name, or an empty string
     public String get_cookies(String cookie) {
-        String value = "";
         if(SWVContext.true_online) {
-            SWVContext.cookie_manager = CookieManager.getInstance();
-            String cookies = SWVContext.cookie_manager.getCookie(SWVContext.ASWV_URL);
-            if (cookies !=null && !cookies.isEmpty()) {
-                String[] temp = cookies.split(";");
-                for (String ar1 : temp) {
-                    if (ar1.contains(cookie)) {
-                        String[] temp1 = ar1.split("=");
-                        value = temp1[1];
-                        break;
-                    }
-                }
-            } else {
-                value = "";
-                if(SWVContext.SWV_DEBUGMODE) {
-                    Log.d("SLOG_COOKIES", "Cookies either NULL or Empty");
-                }
-            }
-        } else {
-            Log.w("SLOG_NETWORK","DEVICE NOT ONLINE");
+            return CookieStore.get(SWVContext.ASWV_URL, cookie);
         }
-        return value;
+        Log.w("SLOG_NETWORK","DEVICE NOT ONLINE");
+        return "";
     }
 
     public static Pattern url_pattern() {
@@ -338,9 +437,9 @@ public class Functions {
                                Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
     }
 
-    public void inject_gtag(WebView webView, String gaId) {
-        String gtag_code = "function load_gtag(){var script = document.createElement('script');script.async = true;script.src = 'https://www.googletagmanager.com/gtag/js?id=" + gaId + "';var firstScript = document.getElementsByTagName('script')[0];firstScript.parentNode.insertBefore(script, firstScript);window.dataLayer = window.dataLayer || [];function gtag(){dataLayer.push(arguments);}gtag('js', new Date());gtag('config', '" + gaId + "');console.log('Google Analytics (gtag.js) loaded.');} load_gtag();";
-        webView.evaluateJavascript(gtag_code, null);
+    // Google Analytics loader, injected through PluginManager's bootstrap bundle
+    public static String gtag_script(String gaId) {
+        return "function load_gtag(){var script = document.createElement('script');script.async = true;script.src = 'https://www.googletagmanager.com/gtag/js?id=" + gaId + "';var firstScript = document.getElementsByTagName('script')[0];firstScript.parentNode.insertBefore(script, firstScript);window.dataLayer = window.dataLayer || [];function gtag(){dataLayer.push(arguments);}gtag('js', new Date());gtag('config', '" + gaId + "');console.log('Google Analytics (gtag.js) loaded.');} load_gtag();";
     }
 
     public void show_notification(int type, int id, Context context) {
@@ -40,6 +40,7 @@ import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Base64;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Menu;
@@ -50,7 +51,6 @@ import android.view.WindowManager;
 import android.webkit.ConsoleMessage;
 import android.webkit.CookieManager;
 import android.webkit.GeolocationPermissions;
-import android.webkit.JavascriptInterface;
 import android.webkit.ServiceWorkerClient;
 import android.webkit.ServiceWorkerController;
 import android.webkit.SslErrorHandler;
@@ -60,7 +60,6 @@ import android.webkit.WebChromeClient;
 import android.webkit.WebResourceError;
 import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
-import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.LinearLayout;
@@ -81,9 +80,16 @@ import androidx.core.splashscreen.SplashScreen;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
 import com.google.android.material.navigation.NavigationView;
 
-import java.util.Arrays;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.regex.Matcher;
 
@@ -112,12 +118,15 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     @SuppressLint({"SetJavaScriptEnabled", "WrongViewCast", "JavascriptInterface"})
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long trace = StartupTracer.begin("MainActivity.onCreate");
+        long phase = StartupTracer.begin("splash.install");
         final SplashScreen splashScreen = androidx.core.splashscreen.SplashScreen.installSplashScreen(this);
+        StartupTracer.end("splash.install", phase);
 
         super.onCreate(savedInstanceState);
 
         // If extending splash is enabled, set up a listener
-        if (SWVContext.ASWP_EXTEND_SPLASH) {
+        if (SWVConfig.get().splashExtend) {
             final View content = findViewById(android.R.id.content);
             content.getViewTreeObserver().addOnPreDrawListener(
                     new ViewTreeObserver.OnPreDrawListener() {
@@ -138,7 +147,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         permissionManager = new PermissionManager(this);
+        phase = StartupTracer.begin("loadPlugins");
         SWVContext.loadPlugins(this);
+        StartupTracer.end("loadPlugins", phase);
 
         // Initialize the ActivityResultLauncher here, before it's needed
         fileUploadLauncher = registerForActivityResult(
@@ -188,9 +199,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                     }
                 }
 
-                // Send the results back to the WebView
+                // Send the results back to the WebView once images are downscaled off the main thread
                 if (SWVContext.asw_file_path != null) {
-                    SWVContext.asw_file_path.onReceiveValue(results);
+                    FileProcessing.process_uploads(this, results, SWVContext.asw_file_path);
                     SWVContext.asw_file_path = null;
                 }
 
@@ -212,19 +223,30 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         fns.set_orientation((!Objects.equals(cookie_orientation, "") ? Integer.parseInt(cookie_orientation) : SWVContext.ASWV_ORIENTATION), false, this);
 
         // Setup layout based on configuration
+        phase = StartupTracer.begin("setupLayout");
         setupLayout();
+        StartupTracer.end("setupLayout", phase);
 
         // Initialize Smart WebView components
+        phase = StartupTracer.begin("initializeWebView");
         initializeWebView();
+        StartupTracer.end("initializeWebView", phase);
 
         // Setup features and handle intents
+        phase = StartupTracer.begin("setupFeatures");
         setupFeatures();
+        StartupTracer.end("setupFeatures", phase);
+        StartupTracer.beginAsync("page.first");
+        phase = StartupTracer.begin("handleIncomingIntents");
         handleIncomingIntents();
+        StartupTracer.end("handleIncomingIntents", phase);
 
         // Debug mode logging
-        if(SWVContext.SWV_DEBUGMODE){
-            Log.d(TAG, "URL: "+ SWVContext.CURR_URL+"DEVICE INFO: "+ Arrays.toString(fns.get_info(this)));
+        if(SWVConfig.get().debugMode){
+            MetaPull meta = new MetaPull(getApplicationContext());
+            MetaPull.whenReady(this, () -> Log.d(TAG, "URL: "+ SWVContext.CURR_URL+"\nDEVICE INFO: "+ meta.device()+"\n"+ meta.swv()));
         }
+        StartupTracer.end("MainActivity.onCreate", trace);
     }
 
     /**
@@ -232,10 +254,10 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
      */
     private void setupLayout() {
         // Set content view based on configuration
-        if (SWVContext.ASWV_LAYOUT == 1) {
+        if (SWVConfig.get().layout == 1) {
             setContentView(R.layout.drawer_main);
             // Conditionally show or hide the header based on config
-            if (SWVContext.ASWP_DRAWER_HEADER) {
+            if (SWVConfig.get().drawerHeader) {
                 // Header is enabled: Setup Toolbar and Toggle
                 findViewById(R.id.app_bar).setVisibility(View.VISIBLE);
                 Toolbar toolbar = findViewById(R.id.toolbar);
@@ -259,7 +281,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                     public void onDrawerClosed(View drawerView) {
                         super.onDrawerClosed(drawerView);
                         // Re-enable pull-to-refresh only if the feature is globally enabled.
-                        if (!pullRefresh.isEnabled() && SWVContext.ASWP_PULLFRESH) {
+                        if (!pullRefresh.isEnabled() && SWVConfig.get().pullRefresh) {
                             pullRefresh.setEnabled(true);
                         }
                     }
@@ -296,9 +318,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         // Initialize UI components
-        SWVContext.asw_view = findViewById(R.id.msw_view);
+        // The layout only holds a placeholder; the WebView comes prebuilt from the provider
+        SWVContext.asw_view = WebViewProvider.replace(findViewById(R.id.msw_view), WebViewProvider.obtain(this));
         adContainer = findViewById(R.id.msw_ad_container);
-        SWVContext.print_view = findViewById(R.id.print_view);
 
         // Setup window appearance
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
@@ -316,65 +338,176 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         Playground playground = new Playground(this, SWVContext.asw_view, fns);
         SWVContext.getPluginManager().setPlayground(playground);
 
-        // Configure WebView settings
-        WebSettings webSettings = SWVContext.asw_view.getSettings();
-
-        // Configure user agent
-        if (SWVContext.OVERRIDE_USER_AGENT || SWVContext.POSTFIX_USER_AGENT) {
-            String userAgent = webSettings.getUserAgentString();
-            if (SWVContext.OVERRIDE_USER_AGENT) {
-                userAgent = SWVContext.CUSTOM_USER_AGENT;
-            }
-            if (SWVContext.POSTFIX_USER_AGENT) {
-                userAgent = userAgent + " " + SWVContext.USER_AGENT_POSTFIX;
-            }
-            webSettings.setUserAgentString(userAgent);
-        }
-
-        // Configure WebView settings
-        // WARNING: setJavaScriptEnabled can introduce XSS vulnerabilities.
-        // Ensure you are loading only trusted content (your own website) and
-        // that you have sanitized any user-submitted content on your server.
-        webSettings.setJavaScriptEnabled(true);
-        webSettings.setSaveFormData(SWVContext.ASWP_SFORM);
-        webSettings.setSupportZoom(SWVContext.ASWP_ZOOM);
-        webSettings.setAllowFileAccess(true);
-        webSettings.setAllowFileAccessFromFileURLs(true);
-        webSettings.setAllowUniversalAccessFromFileURLs(true);
-        webSettings.setUseWideViewPort(true);
-        webSettings.setDomStorageEnabled(true);
-        webSettings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+        // User agent and WebSettings are applied by WebViewProvider when the WebView is built
 
         // Disable copy-paste if configured
-        if (!SWVContext.ASWP_COPYPASTE) {
+        if (!SWVConfig.get().copyPaste) {
             SWVContext.asw_view.setOnLongClickListener(v -> true);
         }
 
-        // Set WebView properties
-        SWVContext.asw_view.setHapticFeedbackEnabled(false);
-        SWVContext.asw_view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
-        SWVContext.asw_view.setVerticalScrollBarEnabled(false);
-
         // Set WebView clients
         SWVContext.asw_view.setWebViewClient(new WebViewCallback());
         SWVContext.asw_view.setWebChromeClient(createWebChromeClient());
         SWVContext.asw_view.setBackgroundColor(getColor(R.color.colorPrimary));
-        SWVContext.asw_view.addJavascriptInterface(new WebAppInterface(), "AndroidInterface");
+
+        // Host calls go over the message bus; window.AndroidInterface stays as a shim for existing pages
+        PluginManager pluginManager = SWVContext.getPluginManager();
+        pluginManager.getMessageBus().register("App", (method, args, reply) -> {
+            if ("setNativeTheme".equals(method)) {
+                String theme = args.optString(0);
+                runOnUiThread(() -> setNativeTheme(theme));
+                reply.resolve(null);
+            } else if ("getInfo".equals(method)) {
+                // Worker thread; the profiles are normally ready since App.onCreate
+                try {
+                    reply.resolve(MetaPull.toJson(getApplicationContext()));
+                } catch (JSONException e) {
+                    reply.reject(e.getMessage());
+                }
+            } else {
+                reply.reject("Unsupported method: " + method);
+            }
+        });
+        // Namespaces that act with the app's cookies or storage only answer frames of the app origin
+        String appOrigin = appOrigin();
+        if (appOrigin != null) {
+            pluginManager.getMessageBus().listenForAppOrigin(appOrigin);
+        }
+        if (SWVConfig.get().downloadEngine) {
+            registerDownloads(pluginManager.getMessageBus());
+            installBlobChannel(appOrigin);
+        }
+        pluginManager.addBootstrapScript("if (!window.AndroidInterface) { window.AndroidInterface = { setNativeTheme: function(theme) { return SWV.call('App', 'setNativeTheme', [theme]); }, getInfo: function() { return SWV.call('App', 'getInfo'); } }; }");
+
+        // Page scripts ride along with the plugin shims in one bootstrap bundle
+        String gtag = SWVConfig.get().gtagId;
+        if (gtag != null && !gtag.isEmpty()) {
+            pluginManager.addPageScript("if (location.protocol !== 'file:') {" + Functions.gtag_script(gtag) + "}");
+        }
+        String theme = SWVContext.ASWP_DARK_MODE ? "dark" : "light";
+        pluginManager.addPageScript("if(typeof applyInitialTheme === 'function') { applyInitialTheme('" + theme + "'); }");
+        pluginManager.installBootstrap();
 
         // Setup download listener
         setupDownloadListener();
     }
 
+    /**
+     * Downloads started by the page; progress arrives as swv:download-* events. Only the app's own
+     * origin may use it: start fetches with the app's cookies and open/write/close write into Downloads.
+     */
+    private void registerDownloads(MessageBus bus) {
+        String downloadAgent = SWVContext.asw_view.getSettings().getUserAgentString();
+        bus.registerForAppOrigin("Downloads", (method, args, reply) -> {
+            DownloadEngine engine = DownloadEngine.getInstance(getApplicationContext());
+            if (("start".equals(method) || "open".equals(method)) && !permissionManager.isStoragePermissionGranted()) {
+                // Same check as setupDownloadListener; below API 29 the engine can't create the file without it
+                runOnUiThread(() -> ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.WRITE_EXTERNAL_STORAGE}, PermissionManager.STORAGE_REQUEST_CODE));
+                reply.reject("Storage permission required");
+                return;
+            }
+            if ("start".equals(method)) {
+                JSONObject options = args.optJSONObject(0);
+                String url = options != null ? options.optString("url") : args.optString(0);
+                if (!URLUtil.isNetworkUrl(url)) {
+                    reply.reject("Invalid URL");
+                    return;
+                }
+                String fileName = options != null && options.has("fileName") ? options.optString("fileName") : URLUtil.guessFileName(url, null, null);
+                String sha256 = options != null && options.has("sha256") ? options.optString("sha256") : null;
+                String priority = options != null ? options.optString("priority") : "";
+                reply.resolve(engine.enqueue(new DownloadEngine.Request(url, downloadAgent, fileName, null, sha256,
+                        "high".equals(priority) ? DownloadEngine.PRIORITY_HIGH : "low".equals(priority) ? DownloadEngine.PRIORITY_LOW : DownloadEngine.PRIORITY_NORMAL,
+                        options != null ? options.optBoolean("unmeteredOnly", SWVConfig.get().downloadUnmeteredOnly) : SWVConfig.get().downloadUnmeteredOnly,
+                        options != null && options.optBoolean("chargingOnly"))));
+            } else if ("open".equals(method)) {
+                // Streamed downloads; see DownloadEngine.blobScript
+                try {
+                    String mimeType = args.optString(1);
+                    reply.resolve(engine.openStream(args.optString(0), mimeType.isEmpty() ? null : mimeType, args.optLong(2, -1)));
+                } catch (IOException e) {
+                    reply.reject(e.getMessage());
+                }
+            } else if ("write".equals(method)) {
+                try {
+                    byte[] data = Base64.decode(args.optString(2), Base64.DEFAULT);
+                    engine.writeStream(args.optString(0), args.optLong(1), data, data.length);
+                    reply.resolve(null);
+                } catch (IOException | IllegalArgumentException e) {
+                    reply.reject(e.getMessage());
+                }
+            } else if ("close".equals(method)) {
+                engine.closeStream(args.optString(0), args.optBoolean(1));
+                reply.resolve(null);
+            } else if ("cancel".equals(method)) {
+                engine.cancel(args.optString(0));
+                reply.resolve(null);
+            } else if ("list".equals(method)) {
+                reply.resolve(engine.list());
+            } else {
+                reply.reject("Unsupported method: " + method);
+            }
+        }, MessageBus.DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Lets blob: downloads from the app's own origin post their chunks as ArrayBuffers (DownloadEngine.BLOB_CHANNEL)
+     * instead of base64 strings over the bus. Without WebView support the page keeps using the bus.
+     */
+    private void installBlobChannel(String origin) {
+        if (origin == null || !WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)
+                || !WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER)) {
+            return;
+        }
+        DownloadEngine engine = DownloadEngine.getInstance(getApplicationContext());
+        try {
+            WebViewCompat.addWebMessageListener(SWVContext.asw_view, DownloadEngine.BLOB_CHANNEL, Collections.singleton(origin),
+                    (view, message, sourceOrigin, isMainFrame, replyProxy) -> {
+                        if (message.getType() == WebMessageCompat.TYPE_ARRAY_BUFFER) {
+                            // Disk work on the engine's pool; replies go back on the main thread
+                            engine.writeFrame(message.getArrayBuffer(), json -> PluginExecutor.runOnMain(() -> replyProxy.postMessage(json)));
+                        }
+                    });
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Blob channel unavailable for " + origin + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * scheme://host[:port] of ASWV_APP_URL, or null when the app isn't served over http(s).
+     */
+    private static String appOrigin() {
+        Uri app = Uri.parse(SWVConfig.get().appUrl);
+        if (!("https".equals(app.getScheme()) || "http".equals(app.getScheme())) || app.getHost() == null) {
+            return null;
+        }
+        return app.getScheme() + "://" + app.getHost() + (app.getPort() != -1 ? ":" + app.getPort() : "");
+    }
+
     /**
      * Setup the download listener for WebView
      */
     private void setupDownloadListener() {
         SWVContext.asw_view.setDownloadListener((url, userAgent, contentDisposition, mimeType, contentLength) -> {
             // We only need storage permission for downloads on older Android versions.
-            // On modern Android, DownloadManager handles it. But a check is still good practice.
+            // On modern Android, DownloadManager and the MediaStore handle it. But a check is still good practice.
             if (!permissionManager.isStoragePermissionGranted()) {
                 ActivityCompat.requestPermissions(MainActivity.this, new String[]{Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.WRITE_EXTERNAL_STORAGE}, PermissionManager.STORAGE_REQUEST_CODE);
                 Toast.makeText(this, "Storage permission is required to download files.", Toast.LENGTH_LONG).show();
+            } else if (SWVConfig.get().downloadEngine && url.startsWith("blob:")) {
+                // Only the page can read its blobs; it streams them back over the bus
+                SWVContext.asw_view.evaluateJavascript(DownloadEngine.blobScript(url, URLUtil.guessFileName(url, contentDisposition, mimeType)), null);
+                Toast.makeText(this, getString(R.string.dl_downloading2), Toast.LENGTH_LONG).show();
+            } else if (url.startsWith("blob:")) {
+                // DownloadManager only takes http(s) URLs
+                Log.w(TAG, "blob: downloads need download.engine.enabled");
+            } else if (url.startsWith("data:")) {
+                DownloadEngine.getInstance(getApplicationContext()).saveDataUrl(url, URLUtil.guessFileName(url, contentDisposition, mimeType));
+                Toast.makeText(this, getString(R.string.dl_downloading2), Toast.LENGTH_LONG).show();
+            } else if (SWVConfig.get().downloadEngine && URLUtil.isNetworkUrl(url)) {
+                DownloadEngine.getInstance(getApplicationContext()).enqueue(new DownloadEngine.Request(
+                        url, userAgent, URLUtil.guessFileName(url, contentDisposition, mimeType), mimeType, null));
+                Toast.makeText(this, getString(R.string.dl_downloading2), Toast.LENGTH_LONG).show();
             } else {
                 DownloadManager.Request request = new DownloadManager.Request(Uri.parse(url));
 
@@ -404,7 +537,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         return new WebChromeClient() {
             @Override
             public boolean onConsoleMessage(ConsoleMessage consoleMessage) {
-                if(SWVContext.SWV_DEBUGMODE) {
+                if(SWVConfig.get().debugMode) {
                     Log.d("SWV_JS", consoleMessage.message() + " -- From line " +
                             consoleMessage.lineNumber() + " of " + consoleMessage.sourceId());
                 }
@@ -419,7 +552,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
             @Override
             public void onProgressChanged(WebView view, int p) {
-                if (SWVContext.ASWP_PBAR) {
+                if (SWVConfig.get().progressBar) {
                     if (SWVContext.asw_progress == null) SWVContext.asw_progress = findViewById(R.id.msw_progress);
                     SWVContext.asw_progress.setProgress(p);
                     if (p == 100) {
@@ -466,7 +599,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         setupSwipeRefresh();
 
         // Setup progress bar if enabled
-        if (SWVContext.ASWP_PBAR) {
+        if (SWVConfig.get().progressBar) {
             SWVContext.asw_progress = findViewById(R.id.msw_progress);
         } else {
             findViewById(R.id.msw_progress).setVisibility(View.GONE);
@@ -478,6 +611,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
         // A Centralized Permission Request on Launch
         new Handler(Looper.getMainLooper()).postDelayed(() -> {
+            StartupTracer.mark("permissions.request");
             permissionManager.requestInitialPermissions();
         }, 1500);
 
@@ -505,7 +639,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             public boolean onQueryTextSubmit(String query) {
                 searchView.clearFocus();
-                fns.aswm_view(SWVContext.ASWV_SEARCH + query, false, SWVContext.asw_error_counter, MainActivity.this);
+                fns.aswm_view(SWVConfig.get().searchUrl + query, false, SWVContext.asw_error_counter, MainActivity.this);
                 searchView.setQuery(query, false);
                 return false;
             }
@@ -560,7 +694,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         }
 
         // Close the drawer
-        if (SWVContext.ASWV_LAYOUT == 1) {
+        if (SWVConfig.get().layout == 1) {
             DrawerLayout drawer = findViewById(R.id.drawer_layout);
             if (drawer != null) {
                 drawer.closeDrawer(GravityCompat.START);
@@ -599,7 +733,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     private void setupSwipeRefresh() {
         final SwipeRefreshLayout pullRefresh = findViewById(R.id.pullfresh);
 
-        if (SWVContext.ASWP_PULLFRESH) {
+        if (SWVConfig.get().pullRefresh) {
             pullRefresh.setOnRefreshListener(() -> {
                 // Pass the current activity context to the pull_fresh method
                 fns.pull_fresh(MainActivity.this);
@@ -701,22 +835,18 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         fns.aswm_view(redirectUrl, false, SWVContext.asw_error_counter, this);
     }
 
-    public class WebAppInterface {
-        @JavascriptInterface
-        public void setNativeTheme(String theme) {
-            runOnUiThread(() -> {
-                int newMode;
-                if ("dark".equals(theme)) {
-                    newMode = AppCompatDelegate.MODE_NIGHT_YES;
-                } else if ("light".equals(theme)) {
-                    newMode = AppCompatDelegate.MODE_NIGHT_NO;
-                } else {
-                    newMode = AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM;
-                }
-                if (AppCompatDelegate.getDefaultNightMode() != newMode) {
-                    AppCompatDelegate.setDefaultNightMode(newMode);
-                }
-            });
+    // Called from the page through SWV.call('App', 'setNativeTheme', [theme]); main thread only
+    private void setNativeTheme(String theme) {
+        int newMode;
+        if ("dark".equals(theme)) {
+            newMode = AppCompatDelegate.MODE_NIGHT_YES;
+        } else if ("light".equals(theme)) {
+            newMode = AppCompatDelegate.MODE_NIGHT_NO;
+        } else {
+            newMode = AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM;
+        }
+        if (AppCompatDelegate.getDefaultNightMode() != newMode) {
+            AppCompatDelegate.setDefaultNightMode(newMode);
         }
     }
 
@@ -743,6 +873,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     @Override
     protected void onDestroy() {
         SWVContext.getPluginManager().onDestroy();
+        WebViewProvider.release(SWVContext.asw_view);
+        WebViewProvider.release(SWVContext.print_view);
+        SWVContext.print_view = null;
         super.onDestroy();
     }
 
@@ -787,7 +920,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             if (SWVContext.asw_view.canGoBack()) {
                 SWVContext.asw_view.goBack();
             } else {
-                if (SWVContext.ASWP_EXITDIAL) {
+                if (SWVConfig.get().exitDialog) {
                     fns.ask_exit(this);
                 } else {
                     finish();
@@ -822,7 +955,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                         Log.d(TAG, "Notification permission granted.");
 
                         // Send a test notification under debug mode
-                        if(SWVContext.SWV_DEBUGMODE) {
+                        if(SWVConfig.get().debugMode) {
                             Firebase firebase = new Firebase();
                             firebase.sendMyNotification(
                                     "Yay! Firebase is working",
@@ -857,20 +990,14 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             super.onPageFinished(view, url);
 
             SWVContext.getPluginManager().onPageFinished(url);
+            StartupTracer.endAsync("page.first");
+            StartupTracer.finish(MainActivity.this);
+            // The page and its responses may have changed cookies
+            CookieStore.invalidate();
 
             findViewById(R.id.msw_welcome).setVisibility(View.GONE);
             findViewById(R.id.msw_view).setVisibility(View.VISIBLE);
             isPageLoaded = true;
-
-            // Inject Google Analytics if configured
-            if (!url.startsWith("file://") && SWVContext.ASWV_GTAG != null && !SWVContext.ASWV_GTAG.isEmpty()) {
-                fns.inject_gtag(view, SWVContext.ASWV_GTAG);
-            }
-
-            // Inject theme preference
-            String theme = SWVContext.ASWP_DARK_MODE ? "dark" : "light";
-            String script = "if(typeof applyInitialTheme === 'function') { applyInitialTheme('" + theme + "'); }";
-            view.evaluateJavascript(script, null);
         }
 
         @Override
@@ -887,6 +1014,21 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return fns.url_actions(view, url, MainActivity.this);
         }
 
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+            // Runs on a WebView background thread; the precached app shell wins, then cached documents, then the native HTTP cache
+            WebResourceResponse precached = Precache.getInstance(getApplicationContext()).intercept(request);
+            if (precached != null) {
+                return precached;
+            }
+            WebResourceResponse page = NavigationCache.getInstance(getApplicationContext()).intercept(request);
+            if (page != null) {
+                return page;
+            }
+            WebResourceResponse cached = ResponseCache.getInstance(getApplicationContext()).intercept(request);
+            return cached != null ? cached : super.shouldInterceptRequest(view, request);
+        }
+
         @Override
         public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
             // This method is called when a page load fails.
@@ -903,16 +1045,18 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
 
                     Log.e(TAG, "Network Error Occurred: " + error.getDescription());
 
-                    // Redirect to the custom offline URL.
+                    // The connectivity snapshot tells a dead connection apart from an unreachable server.
                     // It's important to use post() to avoid issues with modifying the WebView
                     // while it's in the middle of a callback.
+                    final boolean offline = !ConnectivityMonitor.isOnline();
                     view.post(() -> {
-                        // First, try to load the primary offline page
-                        if (SWVContext.ASWV_OFFLINE_URL != null && !SWVContext.ASWV_OFFLINE_URL.isEmpty()) {
-                            view.loadUrl(SWVContext.ASWV_OFFLINE_URL);
+                        // First, try to load the primary offline page when the device has no network
+                        String offlineUrl = SWVConfig.get().offlineUrl;
+                        if (offline && offlineUrl != null && !offlineUrl.isEmpty()) {
+                            view.loadUrl(offlineUrl);
                         } else {
-                            // As a final fallback, load the basic error page
-                            view.loadUrl("file:///android_asset/error.html");
+                            // Online but the server failed, or no offline page configured: load the basic error page
+                            view.loadUrl("file:///android_asset/web/error.html");
                         }
                     });
                 }
@@ -923,11 +1067,11 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         @SuppressLint("WebViewClientOnReceivedSslError")
         @Override
         public void onReceivedSslError(WebView view, SslErrorHandler handler, SslError error) {
-            if (SWVContext.ASWP_CERT_VERI) {
+            if (SWVConfig.get().verifySsl) {
                 super.onReceivedSslError(view, handler, error);
             } else {
                 handler.proceed();
-                if (SWVContext.SWV_DEBUGMODE) {
+                if (SWVConfig.get().debugMode) {
                     Toast.makeText(MainActivity.this, "SSL Error: " + error.getPrimaryError(),
                             Toast.LENGTH_SHORT).show();
                 }
@@ -938,7 +1082,7 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         public void onReceivedHttpError(WebView view, WebResourceRequest request,
                                         WebResourceResponse errorResponse) {
             super.onReceivedHttpError(view, request, errorResponse);
-            if (SWVContext.SWV_DEBUGMODE) {
+            if (SWVConfig.get().debugMode) {
                 Log.e(TAG, "HTTP Error loading " + request.getUrl().toString() +
                         ": " + errorResponse.getStatusCode());
             }
@@ -0,0 +1,357 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single JS-to-native bridge. Pages call window.SWV.call(namespace, method, args), which returns a Promise;
+ * calls made in the same JS task reach native as one postMessage batch, and replies and events queued
+ * within a frame go back to the page in one evaluateJavascript call.
+ * Handlers run on PluginExecutor's worker pool, never on the main thread.
+ */
+public final class MessageBus {
+
+    private static final String TAG = "MessageBus";
+
+    // Name of the one object exposed through addJavascriptInterface
+    public static final String JS_NAME = "SWVBridge";
+
+    // Web message listener only injected into frames of the app origin; see listenForAppOrigin
+    public static final String APP_JS_NAME = "SWVAppBridge";
+
+    // Page side of the bus; ids carry a per-page prefix so late replies can't settle calls of the next page
+    public static final String BOOTSTRAP_SCRIPT =
+            "if (!window.SWV) {\n" +
+            "  (function() {\n" +
+            "    var prefix = Date.now().toString(36) + Math.random().toString(36).slice(2, 6) + ':';\n" +
+            "    var seq = 0, pending = {}, listeners = {}, queue = [], scheduled = false;\n" +
+            "    function settle(m) {\n" +
+            "      var p = pending[m.id];\n" +
+            "      if (!p) return;\n" +
+            "      delete pending[m.id];\n" +
+            "      if ('error' in m) { p.reject(new Error(m.error)); } else { p.resolve(m.result); }\n" +
+            "    }\n" +
+            "    function flush() {\n" +
+            "      scheduled = false;\n" +
+            "      var batch = queue;\n" +
+            "      queue = [];\n" +
+            "      if (!batch.length) return;\n" +
+            "      if (window." + APP_JS_NAME + ") { window." + APP_JS_NAME + ".postMessage(JSON.stringify(batch)); return; }\n" +
+            "      if (window." + JS_NAME + ") { window." + JS_NAME + ".postMessage(JSON.stringify(batch)); return; }\n" +
+            "      batch.forEach(function(m) { settle({ id: m.id, error: 'Native bridge unavailable' }); });\n" +
+            "    }\n" +
+            "    window.SWV = {\n" +
+            "      call: function(ns, method, args) {\n" +
+            "        return new Promise(function(resolve, reject) {\n" +
+            "          var id = prefix + (++seq);\n" +
+            "          pending[id] = { resolve: resolve, reject: reject };\n" +
+            "          queue.push({ id: id, ns: ns, method: method, args: args || [] });\n" +
+            "          if (!scheduled) { scheduled = true; Promise.resolve().then(flush); }\n" +
+            "        });\n" +
+            "      },\n" +
+            "      on: function(event, fn) { (listeners[event] = listeners[event] || []).push(fn); },\n" +
+            "      off: function(event, fn) {\n" +
+            "        var l = listeners[event], i = l ? l.indexOf(fn) : -1;\n" +
+            "        if (i >= 0) l.splice(i, 1);\n" +
+            "      },\n" +
+            "      _receive: function(batch) {\n" +
+            "        for (var i = 0; i < batch.length; i++) {\n" +
+            "          var m = batch[i];\n" +
+            "          if (!m.event) { settle(m); continue; }\n" +
+            "          var l = (listeners[m.event] || []).slice();\n" +
+            "          for (var j = 0; j < l.length; j++) { try { l[j](m.data); } catch (e) { console.error(e); } }\n" +
+            "          window.dispatchEvent(new CustomEvent('swv:' + m.event, { detail: m.data }));\n" +
+            "        }\n" +
+            "      }\n" +
+            "    };\n" +
+            "  })();\n" +
+            "}\n";
+
+    // In-flight calls allowed per namespace unless the handler asks for another limit
+    public static final int DEFAULT_CONCURRENCY = 2;
+
+    /**
+     * Receives the calls addressed to one namespace, on a worker thread.
+     * UI work has to be marshalled with PluginExecutor.runOnMain.
+     */
+    public interface MessageHandler {
+        void onMessage(String method, JSONArray args, Reply reply);
+    }
+
+    /**
+     * Settles one JS Promise. Only the first resolve or reject counts; it can be called from any thread.
+     */
+    public static final class Reply {
+        private final MessageBus bus;
+        private final String id;
+        private final AtomicBoolean settled = new AtomicBoolean(false);
+        private final AtomicReference<Runnable> onSettled = new AtomicReference<>();
+
+        Reply(MessageBus bus, String id) {
+            this.bus = bus;
+            this.id = id;
+        }
+
+        public void resolve(Object result) {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            settle();
+            try {
+                JSONObject message = new JSONObject();
+                message.put("id", id);
+                Object wrapped = JSONObject.wrap(result);
+                message.put("result", wrapped != null ? wrapped : JSONObject.NULL);
+                bus.enqueue(message);
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not encode result for " + id, e);
+            }
+        }
+
+        public void reject(String error) {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            settle();
+            try {
+                JSONObject message = new JSONObject();
+                message.put("id", id);
+                message.put("error", error != null ? error : "Error");
+                bus.enqueue(message);
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not encode error for " + id, e);
+            }
+        }
+
+        public boolean isSettled() {
+            return settled.get();
+        }
+
+        // Runs the callback once the call settles, or right away if it already has
+        void whenSettled(Runnable callback) {
+            onSettled.set(callback);
+            if (settled.get()) {
+                settle();
+            }
+        }
+
+        private void settle() {
+            Runnable callback = onSettled.getAndSet(null);
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    private final WebView webView;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private List<JSONObject> outgoing = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    public MessageBus(WebView webView) {
+        this.webView = webView;
+    }
+
+    public void register(String namespace, MessageHandler handler) {
+        register(namespace, handler, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Registers a handler that may run at most maxConcurrent calls at once; calls beyond that are
+     * rejected with "busy" so the page can back off.
+     */
+    public void register(String namespace, MessageHandler handler, int maxConcurrent) {
+        routes.put(namespace, new Route(handler, maxConcurrent, false));
+    }
+
+    /**
+     * Registers a handler that only answers frames of the app origin, i.e. calls that came in through
+     * listenForAppOrigin. Calls from other frames are rejected.
+     */
+    public void registerForAppOrigin(String namespace, MessageHandler handler, int maxConcurrent) {
+        routes.put(namespace, new Route(handler, maxConcurrent, true));
+    }
+
+    /**
+     * Adds the APP_JS_NAME entry point for frames of origin (scheme://host[:port]). addJavascriptInterface
+     * can't tell who is calling, this can. Has to run before the page loads.
+     * @return false if the WebView can't restrict by origin; app-origin namespaces then stay unreachable.
+     */
+    public boolean listenForAppOrigin(String origin) {
+        if (webView == null || !WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)) {
+            return false;
+        }
+        try {
+            WebViewCompat.addWebMessageListener(webView, APP_JS_NAME, Collections.singleton(origin),
+                    (view, message, sourceOrigin, isMainFrame, replyProxy) -> {
+                        // Main thread; it only parses the batch, like the JavaBridge thread does
+                        String data = message.getData();
+                        if (data != null) {
+                            receive(data, true);
+                        }
+                    });
+            return true;
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "No app-origin bridge for " + origin + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void unregister(String namespace) {
+        routes.remove(namespace);
+    }
+
+    /**
+     * Pushes an event to the page: SWV.on(event, fn) listeners and a 'swv:' + event DOM event on window.
+     */
+    public void emit(String event, Object data) {
+        try {
+            JSONObject message = new JSONObject();
+            message.put("event", event);
+            Object wrapped = JSONObject.wrap(data);
+            message.put("data", wrapped != null ? wrapped : JSONObject.NULL);
+            enqueue(message);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not encode event " + event, e);
+        }
+    }
+
+    /**
+     * Entry point for a batch of calls from the page. Runs on the WebView's JavaBridge thread, which only
+     * parses the batch and hands each call to the worker pool.
+     */
+    @JavascriptInterface
+    public void postMessage(String batchJson) {
+        receive(batchJson, false);
+    }
+
+    private void receive(String batchJson, boolean fromAppOrigin) {
+        final JSONArray batch;
+        try {
+            batch = new JSONArray(batchJson);
+        } catch (JSONException e) {
+            Log.e(TAG, "Malformed message batch", e);
+            return;
+        }
+        for (int i = 0; i < batch.length(); i++) {
+            JSONObject call = batch.optJSONObject(i);
+            if (call != null) {
+                dispatch(call, fromAppOrigin);
+            }
+        }
+    }
+
+    private void dispatch(JSONObject call, boolean fromAppOrigin) {
+        Reply reply = new Reply(this, call.optString("id"));
+        String namespace = call.optString("ns");
+        String method = call.optString("method");
+        Route route = routes.get(namespace);
+        if (route == null) {
+            reply.reject("Unknown namespace: " + namespace);
+            return;
+        }
+        if (route.appOriginOnly && !fromAppOrigin) {
+            reply.reject("Not allowed from this origin: " + namespace);
+            return;
+        }
+        JSONArray args = call.optJSONArray("args");
+        // The namespace's slot is held until the Promise settles, not just until onMessage returns,
+        // so handlers that answer later (dialogs, location, pickers) still count against the limit
+        boolean accepted = PluginExecutor.trySubmit("bus:" + namespace, route.maxConcurrent, release -> {
+            reply.whenSettled(release);
+            invoke(route.handler, namespace, method, args != null ? args : new JSONArray(), reply);
+        });
+        if (!accepted) {
+            reply.reject("busy");
+        }
+    }
+
+    private void invoke(MessageHandler handler, String namespace, String method, JSONArray args, Reply reply) {
+        try {
+            handler.onMessage(method, args, reply);
+        } catch (Exception e) {
+            Log.e(TAG, "Handler failed for " + namespace + "." + method, e);
+            reply.reject(e.getMessage());
+        }
+    }
+
+    private void enqueue(JSONObject message) {
+        synchronized (lock) {
+            outgoing.add(message);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        // Everything queued until the next frame goes out in one evaluateJavascript
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> flush()));
+    }
+
+    private void flush() {
+        List<JSONObject> batch;
+        synchronized (lock) {
+            batch = outgoing;
+            outgoing = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty() || webView == null) {
+            return;
+        }
+        JSONArray messages = new JSONArray();
+        for (JSONObject message : batch) {
+            messages.put(message);
+        }
+        webView.evaluateJavascript("window.SWV && window.SWV._receive(" + messages + ");", null);
+    }
+
+    private static final class Route {
+        final MessageHandler handler;
+        final int maxConcurrent;
+        final boolean appOriginOnly;
+
+        Route(MessageHandler handler, int maxConcurrent, boolean appOriginOnly) {
+            this.handler = handler;
+            this.maxConcurrent = maxConcurrent;
+            this.appOriginOnly = appOriginOnly;
+        }
+    }
+}
@@ -22,46 +22,200 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.os.Process;
 import android.util.Log;
 
 import androidx.multidex.BuildConfig;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Device and app details. Both profiles are immutable and computed once per process, on a background
+ * thread started by prefetch(); the PackageManager lookup never runs again after that.
+ */
 public class MetaPull {
 
 	private final Context context;
 	private static final String TAG = "MetaPull";
 
+	private static volatile DeviceProfile deviceProfile;
+	private static volatile AppProfile appProfile;
+	private static boolean loading = false;
+	private static final List<Runnable> waiting = new ArrayList<>();
+
 	public MetaPull(Context context) {
 		this.context = context;
 	}
 
+	/**
+	 * Starts computing the profiles in the background, once per process.
+	 */
+	public static void prefetch(Context context) {
+		final Context appContext = context.getApplicationContext();
+		synchronized (waiting) {
+			if (loading) {
+				return;
+			}
+			loading = true;
+		}
+		Thread thread = new Thread(() -> {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			getAppProfile(appContext);
+			List<Runnable> callbacks;
+			synchronized (waiting) {
+				callbacks = new ArrayList<>(waiting);
+				waiting.clear();
+				loading = false;
+			}
+			for (Runnable callback : callbacks) {
+				callback.run();
+			}
+		}, "swv-metapull");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Runs the callback once the profiles are available: right away if they are,
+	 * otherwise on the background thread that computes them.
+	 */
+	public static void whenReady(Context context, Runnable callback) {
+		synchronized (waiting) {
+			if (appProfile == null) {
+				waiting.add(callback);
+				callback = null;
+			}
+		}
+		if (callback != null) {
+			callback.run();
+		} else {
+			prefetch(context);
+		}
+	}
+
+	public static DeviceProfile getDeviceProfile() {
+		if (deviceProfile == null) {
+			deviceProfile = new DeviceProfile();
+		}
+		return deviceProfile;
+	}
+
+	/**
+	 * The app profile, computed on the calling thread if prefetch() hasn't finished yet.
+	 */
+	public static AppProfile getAppProfile(Context context) {
+		AppProfile profile = appProfile;
+		if (profile == null) {
+			synchronized (MetaPull.class) {
+				if (appProfile == null) {
+					appProfile = new AppProfile(context.getApplicationContext());
+				}
+				profile = appProfile;
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Both profiles as one object, as handed to the page by the App.getInfo bus call.
+	 */
+	public static JSONObject toJson(Context context) throws JSONException {
+		JSONObject info = new JSONObject();
+		info.put("device", getDeviceProfile().toJson());
+		info.put("app", getAppProfile(context).toJson());
+		return info;
+	}
+
 	String swv() {
-		try {
-			PackageInfo pInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+		return getAppProfile(context).toString();
+	}
+
+	String device() {
+		return getDeviceProfile().toString();
+	}
+
+	public static final class DeviceProfile {
+		public final String release = Build.VERSION.RELEASE;
+		public final int sdk = Build.VERSION.SDK_INT;
+		public final String manufacturer = Build.MANUFACTURER;
+		public final String model = Build.MODEL;
+
+		private DeviceProfile() {}
+
+		public JSONObject toJson() throws JSONException {
+			return new JSONObject()
+					.put("release", release)
+					.put("sdk", sdk)
+					.put("manufacturer", manufacturer)
+					.put("model", model);
+		}
+
+		@Override
+		public String toString() {
+			return "VERSION.RELEASE : " + release
+					+ "\nVERSION.SDK.NUMBER : " + sdk
+					+ "\nMANUFACTURER : " + manufacturer
+					+ "\nMODEL : " + model;
+		}
+	}
+
+	public static final class AppProfile {
+		public final String versionName;
+		public final int versionCode;
+		public final int minSdk;
+		public final int targetSdk;
+		public final String buildType;
+		public final String packageName;
+		private final boolean available;
+
+		private AppProfile(Context context) {
+			String name = null;
+			int code = 0;
+			boolean found = true;
+			try {
+				PackageInfo pInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+				name = pInfo.versionName;
+				code = pInfo.versionCode;
+			} catch (PackageManager.NameNotFoundException e) {
+				Log.e(TAG, "Could not get package info", e);
+				found = false;
+			}
 			ApplicationInfo appInfo = context.getApplicationInfo();
+			versionName = name;
+			versionCode = code;
+			minSdk = appInfo.minSdkVersion;
+			targetSdk = appInfo.targetSdkVersion;
+			buildType = BuildConfig.DEBUG ? "debug" : "release";
+			packageName = context.getPackageName();
+			available = found;
+		}
 
-			String buildType = BuildConfig.DEBUG ? "debug" : "release";
-			int minSdk = appInfo.minSdkVersion;
-			int targetSdk = appInfo.targetSdkVersion;
+		public JSONObject toJson() throws JSONException {
+			return new JSONObject()
+					.put("versionName", versionName)
+					.put("versionCode", versionCode)
+					.put("minSdk", minSdk)
+					.put("targetSdk", targetSdk)
+					.put("buildType", buildType)
+					.put("packageName", packageName);
+		}
 
-			return "SWV.RELEASE : " + pInfo.versionName
-					+ "\nSWV.BUILD : " + pInfo.versionCode
+		@Override
+		public String toString() {
+			if (!available) {
+				return "Error fetching app info.";
+			}
+			return "SWV.RELEASE : " + versionName
+					+ "\nSWV.BUILD : " + versionCode
 					+ "\nSWV.SDK.MIN : " + minSdk
 					+ "\nSWV.SDK.MAX : " + targetSdk
 					+ "\nSWV.BUILD.TYPE : " + buildType
-					+ "\nSWV.BUILD.NAME : " + pInfo.versionName
-					+ "\nSWV.PACKAGE.NAME : " + context.getPackageName();
-
-		} catch (PackageManager.NameNotFoundException e) {
-			Log.e(TAG, "Could not get package info", e);
-			return "Error fetching app info.";
+					+ "\nSWV.BUILD.NAME : " + versionName
+					+ "\nSWV.PACKAGE.NAME : " + packageName;
 		}
 	}
-
-	String device() {
-		return "VERSION.RELEASE : " + Build.VERSION.RELEASE
-				+ "\nVERSION.SDK.NUMBER : " + Build.VERSION.SDK_INT
-				+ "\nMANUFACTURER : " + Build.MANUFACTURER
-				+ "\nMODEL : " + Build.MODEL;
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,380 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Stale-while-revalidate for HTML documents of the app host. When the navigation strategy for a path is
+ * "stale-while-revalidate", the last good copy of the page is served from disk at once and refreshed in the
+ * background; if the refresh brings different content, the page gets a 'swv:content-updated' event
+ * (or SWV.on('content-updated')) with the URL, and can decide whether to reload.
+ */
+public class NavigationCache {
+
+    private static final String TAG = "NavigationCache";
+    private static final String CACHE_DIR = "swv_pages";
+    private static final int MAX_PAGES = 100;
+    private static final long MAX_PAGE_BYTES = 2L * 1024 * 1024;
+
+    public static final String STRATEGY_NETWORK = "network";
+    public static final String STRATEGY_SWR = "stale-while-revalidate";
+
+    private static NavigationCache instance;
+
+    private final File directory;
+    private final ExecutorService revalidator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-revalidate");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Keys with a revalidation queued or running, so repeated loads don't stack requests
+    private final Set<String> inFlight = new HashSet<>();
+
+    private NavigationCache(File directory) {
+        this.directory = directory;
+    }
+
+    public static synchronized NavigationCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new NavigationCache(new File(context.getCacheDir(), CACHE_DIR));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the navigation strategy for a path: the longest matching prefix from
+     * navigation.strategy.paths wins, otherwise navigation.strategy applies.
+     */
+    static String strategyFor(String path) {
+        SWVConfig config = SWVConfig.get();
+        String strategy = config.navStrategy;
+        int best = -1;
+        for (String rule : config.navStrategyPaths) {
+            int eq = rule.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            String prefix = rule.substring(0, eq).trim();
+            if (path.startsWith(prefix) && prefix.length() > best) {
+                best = prefix.length();
+                strategy = rule.substring(eq + 1).trim().toLowerCase(Locale.ROOT);
+            }
+        }
+        return strategy;
+    }
+
+    /**
+     * Serves main-frame documents according to the navigation strategy, or returns null.
+     * Called on a WebView background thread.
+     */
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        if (!request.isForMainFrame() || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return null;
+        }
+        String scheme = request.getUrl().getScheme();
+        String host = request.getUrl().getHost();
+        String path = request.getUrl().getPath();
+        if (!("http".equals(scheme) || "https".equals(scheme)) || host == null || !host.equalsIgnoreCase(SWVConfig.get().host)
+                || !STRATEGY_SWR.equals(strategyFor(path == null || path.isEmpty() ? "/" : path))) {
+            return null;
+        }
+
+        String url = request.getUrl().toString();
+        String key = ResponseCache.hash(Functions.strip_rid(ResponseCache.stripFragment(url)));
+        Map<String, String> headers = request.getRequestHeaders();
+        JSONObject meta = readMeta(key);
+
+        if (meta != null && bodyFile(key).exists()) {
+            if (ConnectivityMonitor.isOnline()) {
+                revalidate(key, url, headers, meta);
+            }
+            return fromDisk(key, meta);
+        }
+        if (!ConnectivityMonitor.isOnline()) {
+            return null;
+        }
+
+        // First visit: fetch here so the copy can be kept, streaming anything that can't be stored.
+        // Redirects are not followed: passThrough returns null for them and the WebView navigates itself
+        HttpURLConnection connection = null;
+        try {
+            connection = ResponseCache.open(url, headers, false);
+            int status = connection.getResponseCode();
+            ResponseCache.storeCookies(url, connection);
+            if (status == HttpURLConnection.HTTP_OK && isStorable(connection)) {
+                return storeAndServe(key, url, connection);
+            }
+            return ResponseCache.passThrough(connection, status);
+        } catch (IOException e) {
+            if (connection != null) connection.disconnect();
+            Log.w(TAG, "Navigation fetch failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void revalidate(String key, String url, Map<String, String> headers, JSONObject meta) {
+        synchronized (inFlight) {
+            if (!inFlight.add(key)) {
+                return;
+            }
+        }
+        Map<String, String> requestHeaders = headers != null ? new HashMap<>(headers) : new HashMap<>();
+        revalidator.execute(() -> {
+            HttpURLConnection connection = null;
+            try {
+                connection = ResponseCache.open(url, requestHeaders, false);
+                String etag = meta.optString("etag", null);
+                String lastModified = meta.optString("lastModified", null);
+                if (etag != null) connection.setRequestProperty("If-None-Match", etag);
+                if (lastModified != null) connection.setRequestProperty("If-Modified-Since", lastModified);
+                int status = connection.getResponseCode();
+                ResponseCache.storeCookies(url, connection);
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    metaFile(key).setLastModified(System.currentTimeMillis());
+                } else if (status == HttpURLConnection.HTTP_OK && isStorable(connection)) {
+                    JSONObject stored = download(key, url, connection);
+                    if (stored != null && !stored.optString("digest").equals(meta.optString("digest"))) {
+                        notifyUpdated(url);
+                    }
+                } else if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_FOUND
+                        || status == HttpURLConnection.HTTP_GONE || (status >= 300 && status < 400)) {
+                    // The page went away, moved (e.g. to a login page) or became private; stop serving the old copy
+                    bodyFile(key).delete();
+                    metaFile(key).delete();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Revalidation failed for " + url + ": " + e.getMessage());
+            } finally {
+                if (connection != null) connection.disconnect();
+                synchronized (inFlight) {
+                    inFlight.remove(key);
+                }
+            }
+        });
+    }
+
+    private void notifyUpdated(String url) {
+        PluginExecutor.runOnMain(() -> {
+            MessageBus bus = SWVContext.getPluginManager().getMessageBus();
+            if (bus != null) {
+                Map<String, Object> data = new HashMap<>();
+                data.put("url", Functions.strip_rid(url));
+                bus.emit("content-updated", data);
+            }
+        });
+    }
+
+    private static boolean isStorable(HttpURLConnection connection) {
+        String type = connection.getContentType();
+        if (type == null || !type.toLowerCase(Locale.ROOT).startsWith("text/html")) {
+            return false;
+        }
+        // Personalised pages are marked by Cache-Control. Set-Cookie alone doesn't count: many sites refresh a
+        // session or consent cookie on every page, and the cookies go to CookieManager, never into the copy
+        return !ResponseCache.hasDirective(connection, "no-store")
+                && !ResponseCache.hasDirective(connection, "private");
+    }
+
+    // Stores the page and serves it from disk; a page over MAX_PAGE_BYTES is served from what was read plus the live rest
+    private WebResourceResponse storeAndServe(String key, String url, HttpURLConnection connection) throws IOException {
+        File tmp = tempFile(key);
+        MessageDigest digest = sha1();
+        InputStream in = connection.getInputStream();
+        boolean complete;
+        try {
+            complete = copy(in, tmp, digest);
+        } catch (IOException e) {
+            in.close();
+            connection.disconnect();
+            tmp.delete();
+            throw e;
+        }
+        if (!complete) {
+            // Too large to keep, but don't make the WebView fetch it a second time
+            return ResponseCache.spill(tmp, in, connection);
+        }
+        in.close();
+        JSONObject stored = store(key, url, connection, tmp, digest);
+        connection.disconnect();
+        return stored != null ? fromDisk(key, stored) : null;
+    }
+
+    // Background refresh: a page that grew over MAX_PAGE_BYTES is dropped, nobody is waiting for it
+    private JSONObject download(String key, String url, HttpURLConnection connection) throws IOException {
+        File tmp = tempFile(key);
+        MessageDigest digest = sha1();
+        try (InputStream in = connection.getInputStream()) {
+            if (!copy(in, tmp, digest)) {
+                tmp.delete();
+                return null;
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        return store(key, url, connection, tmp, digest);
+    }
+
+    // Per thread, so a first visit and a revalidation of the same page don't write into one file
+    private File tempFile(String key) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        return new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+    }
+
+    private static MessageDigest sha1() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Copies the body into tmp until the end or until it passes MAX_PAGE_BYTES; every byte read is in tmp either way.
+     * @return true if the whole body was copied
+     */
+    private static boolean copy(InputStream in, File tmp, MessageDigest digest) throws IOException {
+        long size = 0;
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                size += read;
+                if (size > MAX_PAGE_BYTES) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Only the rename and the bookkeeping happen under the lock; the download is already on disk
+    private JSONObject store(String key, String url, HttpURLConnection connection, File tmp, MessageDigest digest) throws IOException {
+        JSONObject meta = new JSONObject();
+        try {
+            meta.put("url", url);
+            meta.put("contentType", connection.getContentType());
+            meta.put("etag", connection.getHeaderField("ETag"));
+            meta.put("lastModified", connection.getHeaderField("Last-Modified"));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            meta.put("digest", hex.toString());
+        } catch (JSONException e) {
+            tmp.delete();
+            return null;
+        }
+        synchronized (this) {
+            if (!tmp.renameTo(bodyFile(key))) {
+                tmp.delete();
+                return null;
+            }
+            try (OutputStream out = new FileOutputStream(metaFile(key))) {
+                out.write(meta.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            trim();
+        }
+        return meta;
+    }
+
+    // Keeps the most recently stored or revalidated pages
+    private void trim() {
+        File[] metas = directory.listFiles((dir, name) -> name.endsWith(".meta"));
+        if (metas == null || metas.length <= MAX_PAGES) {
+            return;
+        }
+        Arrays.sort(metas, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < metas.length - MAX_PAGES; i++) {
+            String key = metas[i].getName().substring(0, metas[i].getName().length() - 5);
+            metas[i].delete();
+            bodyFile(key).delete();
+        }
+    }
+
+    private WebResourceResponse fromDisk(String key, JSONObject meta) {
+        try {
+            InputStream body = new FileInputStream(bodyFile(key));
+            String[] type = ResponseCache.splitContentType(meta.optString("contentType", "text/html"), meta.optString("url"));
+            return new WebResourceResponse(type[0], type[1] != null ? type[1] : "UTF-8", 200, "OK", new HashMap<>(), body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private JSONObject readMeta(String key) {
+        File file = metaFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+            return new JSONObject(new String(data, 0, offset, StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    private File bodyFile(String key) {
+        return new File(directory, key + ".html");
+    }
+
+    private File metaFile(String key) {
+        return new File(directory, key + ".meta");
+    }
+}
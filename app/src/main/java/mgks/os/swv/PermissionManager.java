@@ -38,6 +38,7 @@ public class PermissionManager {
     public static final int CAMERA_REQUEST_CODE = 101;
     public static final int STORAGE_REQUEST_CODE = 102;
     public static final int MICROPHONE_REQUEST_CODE = 103;
+    public static final int LOCATION_REQUEST_CODE = 104;
 
     private final Activity activity;
 
@@ -54,7 +55,7 @@ public class PermissionManager {
         List<String> permissionsToRequest = new ArrayList<>();
 
         // Iterate through the permission groups defined in SmartWebView config.
-        for (String permissionGroup : SWVContext.ASWP_REQUIRED_PERMISSIONS) {
+        for (String permissionGroup : SWVConfig.get().requiredPermissions) {
             switch (permissionGroup) {
                 case "LOCATION":
                     if (!isLocationPermissionGranted()) {
@@ -69,7 +70,7 @@ public class PermissionManager {
                     break;
 
                 case "STORAGE":
-                    if (SWVContext.ASWP_FUPLOAD && !isStoragePermissionGranted()) {
+                    if (SWVConfig.get().uploads && !isStoragePermissionGranted()) {
                         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
                             permissionsToRequest.add(Manifest.permission.READ_MEDIA_IMAGES);
                         } else {
@@ -124,6 +125,20 @@ public class PermissionManager {
         }
     }
 
+    /**
+     * Request location permission when needed.
+     * @return true if a request was made; its result arrives with LOCATION_REQUEST_CODE
+     */
+    public boolean requestLocationPermission() {
+        if (isLocationPermissionGranted() || activity.isFinishing()) {
+            return false;
+        }
+        ActivityCompat.requestPermissions(activity,
+                new String[]{Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION},
+                LOCATION_REQUEST_CODE);
+        return true;
+    }
+
     // --- Helper methods to check permission status ---
 
     public boolean isLocationPermissionGranted() {
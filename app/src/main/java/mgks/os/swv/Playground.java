@@ -51,7 +51,7 @@ public class Playground {
     private void onPluginsReady() {
         configurePlugins();
         handleLaunchActions();
-        if (SWVContext.SWV_DEBUGMODE) {
+        if (SWVConfig.get().debugMode) {
             runAllDiagnostics();
         }
     }
@@ -96,7 +96,7 @@ public class Playground {
 
             // Test for ToastPlugin
             runPluginDiagnostic("ToastPlugin", plugin -> {
-                if(SWVContext.SWV_DEBUGMODE) {
+                if(SWVConfig.get().debugMode) {
                     webView.evaluateJavascript("window.Toast && window.Toast.show('ToastPlugin is Active!')", null);
                 }
                 Log.i(TAG, "SUCCESS: ToastPlugin is available.");
@@ -147,18 +147,14 @@ public class Playground {
         });
     }
 
-    public void onPageFinished(String url) {
-        if (SWVContext.SWV_PLAYGROUND && SWVContext.SWV_DEBUGMODE) {
-            mainHandler.postDelayed(() -> {
-                Log.d(TAG, "Attempting to inject Playground UI...");
-                setupPluginDemoUI();
-            }, 500);
+    /**
+     * Demo UI script, added to PluginManager's bootstrap bundle so it runs once per page after the DOM is ready.
+     * Returns null unless the playground is enabled in debug mode.
+     */
+    public String getBootstrapScript() {
+        if (!SWVConfig.get().playground || !SWVConfig.get().debugMode) {
+            return null;
         }
-    }
-
-    private void setupPluginDemoUI() {
-        // This method will now be called from onPageFinished in PluginManager
-        // ensuring it runs for every new page.
         JSONObject pluginStatus = new JSONObject();
         PluginManager manager = SWVContext.getPluginManager();
         try {
@@ -246,9 +242,7 @@ public class Playground {
                         "\n" +
                         "createDemoUI(" + pluginStatus.toString() + ");\n";
 
-        if (webView != null) {
-            webView.evaluateJavascript(demoJs, null);
-        }
+        return demoJs;
     }
 
     /**
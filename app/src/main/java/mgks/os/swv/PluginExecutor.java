@@ -0,0 +1,133 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded worker pool for plugin work triggered from the page. Each key (a bus namespace) has its own
+ * concurrency limit, and submissions beyond that limit or beyond the pool's queue are refused instead of
+ * piling up, so a burst of JS calls can't starve the main thread or grow without bound.
+ */
+public final class PluginExecutor {
+
+    private static final String TAG = "PluginExecutor";
+
+    private static final int CORE_THREADS = 2;
+    private static final int MAX_THREADS = Math.max(CORE_THREADS, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int QUEUE_CAPACITY = 32;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            CORE_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "swv-plugin-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    private static final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    static {
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    private PluginExecutor() {}
+
+    /**
+     * Work that finishes after run() returns, e.g. a call answered from a dialog or a location fix.
+     * It must call release exactly when it is done; extra calls are ignored.
+     */
+    public interface HeldTask {
+        void run(Runnable release);
+    }
+
+    /**
+     * Runs the task on the pool unless the key already has maxConcurrent tasks queued or running,
+     * or the pool itself is saturated.
+     * @return false if the task was refused; the caller should report the key as busy.
+     */
+    public static boolean trySubmit(String key, int maxConcurrent, Runnable task) {
+        return trySubmit(key, maxConcurrent, release -> {
+            try {
+                task.run();
+            } finally {
+                release.run();
+            }
+        });
+    }
+
+    /**
+     * Like trySubmit(String, int, Runnable), but the key's slot stays taken after the task returns,
+     * until it calls release. A task that throws releases its slot.
+     */
+    public static boolean trySubmit(String key, int maxConcurrent, HeldTask task) {
+        Semaphore semaphore = permits.computeIfAbsent(key, k -> new Semaphore(Math.max(1, maxConcurrent)));
+        if (!semaphore.tryAcquire()) {
+            return false;
+        }
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        };
+        try {
+            pool.execute(() -> {
+                try {
+                    task.run(release);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Task failed for " + key, e);
+                    release.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            release.run();
+            return false;
+        }
+    }
+
+    /**
+     * Marshals UI work to the main thread; runs inline when already there.
+     */
+    public static void runOnMain(Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            task.run();
+        } else {
+            mainHandler.post(task);
+        }
+    }
+}
@@ -23,7 +23,20 @@ import android.webkit.WebView;
 import java.util.Map;
 import androidx.annotation.NonNull;
 
+import org.json.JSONArray;
+
 public interface PluginInterface {
+
+	// Lifecycle hooks a plugin can subscribe to through getHooks()
+	int HOOK_ACTIVITY_RESULT = 1;
+	int HOOK_PERMISSIONS_RESULT = 1 << 1;
+	int HOOK_URL_LOADING = 1 << 2;
+	int HOOK_PAGE_STARTED = 1 << 3;
+	int HOOK_PAGE_FINISHED = 1 << 4;
+	int HOOK_RESUME = 1 << 5;
+	int HOOK_ALL = HOOK_ACTIVITY_RESULT | HOOK_PERMISSIONS_RESULT | HOOK_URL_LOADING
+			| HOOK_PAGE_STARTED | HOOK_PAGE_FINISHED | HOOK_RESUME;
+
 	void initialize(Activity activity, WebView webView, Functions functions, Map<String, Object> config);
 	String getPluginName();
 	void onActivityResult(int requestCode, int resultCode, Intent data);
@@ -34,4 +47,51 @@ public interface PluginInterface {
 	void onResume();
 	void onDestroy();
 	void evaluateJavascript(String script);
+
+	/**
+	 * Lifecycle hooks (HOOK_* bitmask) this plugin needs, read once at registration to build the dispatch tables.
+	 * A lazy plugin is initialized by the first of them.
+	 */
+	default int getHooks() {
+		return HOOK_ALL;
+	}
+
+	/**
+	 * Lazy plugins are initialized on the first bus call to their namespace or the first hook they
+	 * subscribed to, instead of during MainActivity.onCreate.
+	 */
+	default boolean isLazy() {
+		return false;
+	}
+
+	/**
+	 * Message bus namespace this plugin answers to (SWV.call(namespace, method, args)), or null for none.
+	 */
+	default String getJsNamespace() {
+		return null;
+	}
+
+	/**
+	 * Handles one bus call to getJsNamespace(). PluginManager initializes the plugin before the first call.
+	 * Runs on a PluginExecutor worker thread; UI work goes through PluginExecutor.runOnMain.
+	 * Every call must end in reply.resolve or reply.reject, now or later, to settle the page's Promise.
+	 */
+	default void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+		reply.reject("Unsupported method: " + method);
+	}
+
+	/**
+	 * Bus calls this plugin may run at once; further calls are rejected with "busy" until one finishes.
+	 */
+	default int getMessageConcurrency() {
+		return MessageBus.DEFAULT_CONCURRENCY;
+	}
+
+	/**
+	 * Helper script (e.g. window.Toast) bundled by PluginManager and injected into every page, at document
+	 * start where supported. It must not depend on initialization or on the DOM being ready.
+	 */
+	default String getBootstrapScript() {
+		return null;
+	}
 }
\ No newline at end of file
@@ -19,26 +19,56 @@ package mgks.os.swv;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.webkit.WebView;
 import androidx.annotation.NonNull;
+import androidx.webkit.ScriptHandler;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class PluginManager {
 	private static final String TAG = "PluginManager";
+	private static final long ACTIVATION_TIMEOUT_MS = 2000;
 	private Activity activity;
 	private WebView webView;
 	private Functions functions;
 	private final List<PluginInterface> plugins = new ArrayList<>();
+	private final Map<String, PluginInterface> pluginsByName = new HashMap<>();
 	private final Map<String, Map<String, Object>> pluginConfigs = new HashMap<>();
 
+	// Per-hook subscriber arrays, indexed by the bit position of the HOOK_* flag and rebuilt on registration
+	private static final int HOOK_SLOTS = Integer.SIZE - Integer.numberOfLeadingZeros(PluginInterface.HOOK_ALL);
+	private static final PluginInterface[] NO_PLUGINS = new PluginInterface[0];
+	private volatile PluginInterface[][] hookTable = emptyHookTable();
+	private final Set<String> activePlugins = Collections.synchronizedSet(new HashSet<>());
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private MessageBus messageBus;
+
+	// Bootstrap bundle: bus client, shims and host page scripts, injected once per page
+	private final List<String> hostScripts = new ArrayList<>();
+	private final List<String> pageScripts = new ArrayList<>();
+	private String bootstrapBundle;
+	private ScriptHandler bootstrapHandler;
+	private boolean bootstrapInstalled = false;
+
 	private Playground playground;
 	public void setPlayground(Playground playground) {
 		this.playground = playground;
+		invalidateBootstrap();
 	}
 
 	// No constructor needed.  Initialization happens via SmartWebView.init().
@@ -49,7 +79,7 @@ public class PluginManager {
 
 		// Check if plugins are globally enabled and if this specific plugin is enabled
 		boolean isEnabled = false;
-		for (String enabledPlugin : SWVContext.ASWP_ENABLED_PLUGINS) {
+		for (String enabledPlugin : SWVConfig.get().enabledPlugins) {
 			if (enabledPlugin.equals(pluginName)) {
 				isEnabled = true;
 				break;
@@ -66,43 +96,140 @@ public class PluginManager {
 			return;
 		}
 		instance.plugins.add(plugin);
+		instance.pluginsByName.put(pluginName, plugin);
 		instance.pluginConfigs.put(pluginName, config);
+		instance.rebuildHookTable();
 
-		// If context is already available, initialize immediately.
+		// If context is already available, attach (and for eager plugins, initialize) immediately.
 		if (instance.activity != null) {
-			plugin.initialize(instance.activity, instance.webView, instance.functions, config);
-			Log.d(TAG, "Plugin initialized immediately: " + pluginName);
+			instance.attach(plugin);
+			instance.invalidateBootstrap();
 		} else {
 			Log.d(TAG, "Plugin registration queued: " + pluginName + ". Waiting for context...");
 		}
 	}
 
 	/**
-	 * Sets the context and initializes all queued plugins.
+	 * Sets the context and attaches all queued plugins. Eager plugins are initialized right away,
+	 * lazy ones only answer on the message bus until first use.
 	 */
 	public void setContext(Activity activity, WebView webView, Functions functions) {
 		this.activity = activity;
 		this.webView = webView;
 		this.functions = functions;
+		activePlugins.clear();
 
-		// Initialize any plugins that were registered before the context was available.
+		messageBus = new MessageBus(webView);
+		if (webView != null) {
+			webView.addJavascriptInterface(messageBus, MessageBus.JS_NAME);
+		}
 		for (PluginInterface plugin : plugins) {
-			Map<String, Object> config = pluginConfigs.get(plugin.getPluginName());
-			// Check if the plugin was already initialized (can happen if context is set late)
-			// A simple check could be to see if a key member like 'activity' is already set in the plugin if it were public,
-			// but for now, we re-initialize. A more robust system might have an isInitialized() flag in the plugin interface.
-			plugin.initialize(activity, webView, functions, config);
-			Log.d(TAG, "Delayed plugin initialization completed for: " + plugin.getPluginName());
+			attach(plugin);
 		}
 	}
 
-	private PluginInterface getPlugin(String pluginName) {
-		for (PluginInterface plugin : plugins) {
-			if (plugin.getPluginName().equals(pluginName)) {
-				return plugin;
+	private void attach(PluginInterface plugin) {
+		String namespace = plugin.getJsNamespace();
+		if (namespace != null && messageBus != null) {
+			messageBus.register(namespace, (method, args, reply) -> {
+				if (activate(plugin)) {
+					plugin.onMessage(method, args, reply);
+				} else {
+					reply.reject(plugin.getPluginName() + " is not available");
+				}
+			}, plugin.getMessageConcurrency());
+		}
+		if (plugin.isLazy()) {
+			Log.d(TAG, "Plugin attached, initialization deferred: " + plugin.getPluginName());
+		} else {
+			activate(plugin);
+		}
+	}
+
+	/**
+	 * Initializes a plugin if it has not been yet. Safe to call from any thread: off the main thread
+	 * the call waits (bounded) for initialization to finish on the main looper.
+	 * @return true if the plugin is initialized.
+	 */
+	public boolean activate(PluginInterface plugin) {
+		if (activePlugins.contains(plugin.getPluginName())) {
+			return true;
+		}
+		if (activity == null) {
+			return false;
+		}
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			initializePlugin(plugin);
+			return true;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		mainHandler.post(() -> {
+			try {
+				initializePlugin(plugin);
+			} finally {
+				latch.countDown();
+			}
+		});
+		try {
+			return latch.await(ACTIVATION_TIMEOUT_MS, TimeUnit.MILLISECONDS) && activePlugins.contains(plugin.getPluginName());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Entry point for plugin methods reachable before initialization, such as JS interface calls.
+	 */
+	public static boolean ensureActive(PluginInterface plugin) {
+		return SWVContext.getPluginManager().activate(plugin);
+	}
+
+	// Main thread only
+	private void initializePlugin(PluginInterface plugin) {
+		String pluginName = plugin.getPluginName();
+		if (activity == null || activePlugins.contains(pluginName)) {
+			return;
+		}
+		activePlugins.add(pluginName);
+		long trace = StartupTracer.begin("plugin:" + pluginName);
+		plugin.initialize(activity, webView, functions, pluginConfigs.get(pluginName));
+		StartupTracer.end("plugin:" + pluginName, trace);
+		Log.d(TAG, "Plugin initialized: " + pluginName);
+	}
+
+	public boolean isActive(String pluginName) {
+		return activePlugins.contains(pluginName);
+	}
+
+	private static PluginInterface[][] emptyHookTable() {
+		PluginInterface[][] table = new PluginInterface[HOOK_SLOTS][];
+		Arrays.fill(table, NO_PLUGINS);
+		return table;
+	}
+
+	// Hook masks are read once per registration, so dispatch never asks uninterested plugins
+	private void rebuildHookTable() {
+		PluginInterface[][] table = new PluginInterface[HOOK_SLOTS][];
+		List<PluginInterface> subscribers = new ArrayList<>();
+		for (int slot = 0; slot < HOOK_SLOTS; slot++) {
+			subscribers.clear();
+			for (PluginInterface plugin : plugins) {
+				if ((plugin.getHooks() & (1 << slot)) != 0) {
+					subscribers.add(plugin);
+				}
 			}
+			table[slot] = subscribers.isEmpty() ? NO_PLUGINS : subscribers.toArray(new PluginInterface[0]);
 		}
-		return null;
+		hookTable = table;
+	}
+
+	private PluginInterface[] subscribers(int hook) {
+		return hookTable[Integer.numberOfTrailingZeros(hook)];
+	}
+
+	private PluginInterface getPlugin(String pluginName) {
+		return pluginsByName.get(pluginName);
 	}
 
 	/**
@@ -116,20 +243,24 @@ public class PluginManager {
 	}
 
 	public void onActivityResult(int requestCode, int resultCode, Intent data) {
-		for (PluginInterface plugin : plugins) {
-			plugin.onActivityResult(requestCode, resultCode, data);
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_ACTIVITY_RESULT)) {
+			if (activate(plugin)) {
+				plugin.onActivityResult(requestCode, resultCode, data);
+			}
 		}
 	}
 
 	public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-		for (PluginInterface plugin : plugins) {
-			plugin.onRequestPermissionsResult(requestCode, permissions, grantResults);
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_PERMISSIONS_RESULT)) {
+			if (activate(plugin)) {
+				plugin.onRequestPermissionsResult(requestCode, permissions, grantResults);
+			}
 		}
 	}
 
 	public boolean shouldOverrideUrlLoading(WebView view, String url) {
-		for (PluginInterface plugin : plugins) {
-			if (plugin.shouldOverrideUrlLoading(view, url)) {
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_URL_LOADING)) {
+			if (activate(plugin) && plugin.shouldOverrideUrlLoading(view, url)) {
 				return true;
 			}
 		}
@@ -137,42 +268,171 @@ public class PluginManager {
 	}
 
 	public void onPageStarted(String url) {
-		for (PluginInterface plugin : plugins) {
-			plugin.onPageStarted(url);
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_PAGE_STARTED)) {
+			if (activate(plugin)) {
+				plugin.onPageStarted(url);
+			}
 		}
 	}
 
 	public void onPageFinished(String url) {
+		// Without document-start support the bundle goes in once the page has loaded
+		if (bootstrapInstalled && bootstrapHandler == null) {
+			evaluateJavascript(getBootstrapBundle());
+		}
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_PAGE_FINISHED)) {
+			if (activate(plugin)) {
+				plugin.onPageFinished(url);
+			}
+		}
+	}
+
+	public MessageBus getMessageBus() {
+		return messageBus;
+	}
+
+	/**
+	 * Adds a host script that runs at document start next to the plugin shims, e.g. a window.* wrapper
+	 * around a host namespace on the message bus.
+	 */
+	public void addBootstrapScript(String script) {
+		if (script != null && !script.isEmpty()) {
+			hostScripts.add(script);
+			invalidateBootstrap();
+		}
+	}
+
+	/**
+	 * Adds a host script that needs the page DOM, such as the theme or analytics snippets.
+	 * It runs in the top frame once the document is parsed, after the plugin shims.
+	 */
+	public void addPageScript(String script) {
+		if (script != null && !script.isEmpty()) {
+			pageScripts.add(script);
+			invalidateBootstrap();
+		}
+	}
+
+	/**
+	 * Injects the bootstrap bundle for every following navigation. Uses a document-start script
+	 * where the WebView supports it, so window.Toast and friends exist before page scripts run;
+	 * otherwise the bundle is evaluated once from onPageFinished.
+	 */
+	public void installBootstrap() {
+		if (webView == null) {
+			return;
+		}
+		removeBootstrapHandler();
+		bootstrapInstalled = true;
+		String bundle = getBootstrapBundle();
+		if (WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT)) {
+			try {
+				bootstrapHandler = WebViewCompat.addDocumentStartJavaScript(webView, bundle, Collections.singleton("*"));
+			} catch (IllegalArgumentException e) {
+				Log.e(TAG, "Document start script rejected, falling back to onPageFinished", e);
+			}
+		}
+		Log.d(TAG, "Bootstrap bundle installed (" + bundle.length() + " chars, " + (bootstrapHandler != null ? "document start" : "page finished") + ")");
+	}
+
+	// Built once and reused until a plugin or page script is added
+	String getBootstrapBundle() {
+		if (bootstrapBundle != null) {
+			return bootstrapBundle;
+		}
+		StringBuilder shims = new StringBuilder();
+		appendMinified(shims, MessageBus.BOOTSTRAP_SCRIPT);
+		for (String script : hostScripts) {
+			appendMinified(shims, script);
+		}
 		for (PluginInterface plugin : plugins) {
-			plugin.onPageFinished(url);
+			appendMinified(shims, plugin.getBootstrapScript());
+		}
+		StringBuilder ready = new StringBuilder();
+		List<String> scripts = new ArrayList<>(pageScripts);
+		if (playground != null) {
+			scripts.add(playground.getBootstrapScript());
+		}
+		for (String script : scripts) {
+			if (script != null) {
+				ready.append("swvReady(function(){\n");
+				appendMinified(ready, script);
+				ready.append("});\n");
+			}
+		}
+		// Top frame only, matching what evaluateJavascript reached before
+		StringBuilder bundle = new StringBuilder("(function(){\nif(window!==window.top||window.__swvBootstrap)return;\nwindow.__swvBootstrap=true;\n");
+		bundle.append(shims);
+		if (ready.length() > 0) {
+			bundle.append("var swvReady=function(f){var run=function(){try{f();}catch(e){console.error(e);}};if(document.readyState==='loading'){document.addEventListener('DOMContentLoaded',run);}else{run();}};\n");
+			bundle.append(ready);
+		}
+		bundle.append("})();");
+		bootstrapBundle = bundle.toString();
+		return bootstrapBundle;
+	}
+
+	// Light minification: trims indentation and drops blank and whole-line // comments
+	private static void appendMinified(StringBuilder out, String script) {
+		if (script == null) {
+			return;
+		}
+		for (String line : script.split("\n")) {
+			String trimmed = line.trim();
+			if (!trimmed.isEmpty() && !trimmed.startsWith("//")) {
+				out.append(trimmed).append('\n');
+			}
+		}
+	}
+
+	private void invalidateBootstrap() {
+		bootstrapBundle = null;
+		if (bootstrapInstalled) {
+			installBootstrap();
 		}
-		if (this.playground != null) {
-			// Pass the URL to the playground's handler
-			this.playground.onPageFinished(url);
+	}
+
+	private void removeBootstrapHandler() {
+		if (bootstrapHandler != null) {
+			bootstrapHandler.remove();
+			bootstrapHandler = null;
 		}
 	}
 
 	public void onResume() {
-		for (PluginInterface plugin : plugins) {
-			plugin.onResume();
+		for (PluginInterface plugin : subscribers(PluginInterface.HOOK_RESUME)) {
+			if (activate(plugin)) {
+				plugin.onResume();
+			}
 		}
 	}
 
 	public void onDestroy() {
+		// Plugins that never ran have nothing to tear down
 		for (PluginInterface plugin : plugins) {
-			plugin.onDestroy();
+			if (activePlugins.contains(plugin.getPluginName())) {
+				plugin.onDestroy();
+			}
 		}
 		plugins.clear();
+		pluginsByName.clear();
 		pluginConfigs.clear();
+		activePlugins.clear();
+		hookTable = emptyHookTable();
+		removeBootstrapHandler();
+		hostScripts.clear();
+		pageScripts.clear();
+		messageBus = null;
+		bootstrapBundle = null;
+		bootstrapInstalled = false;
 	}
 
+	/**
+	 * Returns a registered plugin. Lazy plugins may not be initialized yet; their public methods
+	 * activate them on demand.
+	 */
 	public PluginInterface getPluginInstance(String pluginName) {
-		for (PluginInterface plugin : plugins) {
-			if (plugin.getPluginName().equals(pluginName)) {
-				return plugin;
-			}
-		}
-		return null;
+		return getPlugin(pluginName);
 	}
 
 	public void evaluateJavascript(String script) {
@@ -180,4 +440,4 @@ public class PluginManager {
 			webView.evaluateJavascript(script, null);
 		}
 	}
-}
\ No newline at end of file
+}
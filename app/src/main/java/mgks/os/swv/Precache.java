@@ -0,0 +1,443 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Offline-first copy of the app shell. A manifest published next to ASWV_APP_URL lists the shell's files
+ * with their SHA-256 and size:
+ *
+ *   { "version": "42", "assets": [ { "url": "/", "hash": "&lt;sha256&gt;", "size": 5120, "type": "text/html" }, ... ] }
+ *
+ * Files are downloaded in the background into filesDir/swv_precache/objects/&lt;sha256&gt;, verified, and only
+ * when the whole set is present is the new version made current by renaming a pointer file over the old one.
+ * A half-finished update is never visible to shouldInterceptRequest.
+ */
+public class Precache {
+
+    private static final String TAG = "Precache";
+    private static final String DIR = "swv_precache";
+    private static final String POINTER = "CURRENT";
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 30000;
+    // Upper bounds for the downloaded manifest and for files read back from disk; an index holds
+    // absolute URLs, so it may be somewhat larger than the manifest it came from
+    private static final int MAX_MANIFEST_BYTES = 1024 * 1024;
+    private static final int MAX_INDEX_BYTES = 2 * MAX_MANIFEST_BYTES;
+
+    public static final String STRATEGY_OFFLINE = "offline";
+    public static final String STRATEGY_CACHE_FIRST = "cache-first";
+
+    private static Precache instance;
+
+    private final File root;
+    private final File objects;
+    private final File versions;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-precache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // url -> asset of the current version; replaced as a whole on every swap
+    private volatile Map<String, Asset> current;
+    private boolean updating = false;
+    private ConnectivityMonitor.Listener retryListener;
+
+    private Precache(File root) {
+        this.root = root;
+        this.objects = new File(root, "objects");
+        this.versions = new File(root, "versions");
+    }
+
+    public static synchronized Precache getInstance(Context context) {
+        if (instance == null) {
+            instance = new Precache(new File(context.getFilesDir(), DIR));
+        }
+        return instance;
+    }
+
+    /**
+     * Serves requests for the app host from the current version when offline, or always with the
+     * cache-first strategy. Called on a WebView background thread.
+     */
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        SWVConfig config = SWVConfig.get();
+        if (!config.precacheEnabled || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return null;
+        }
+        String scheme = request.getUrl().getScheme();
+        String host = request.getUrl().getHost();
+        if (!("http".equals(scheme) || "https".equals(scheme)) || host == null || !host.equalsIgnoreCase(config.host)) {
+            return null;
+        }
+        if (!STRATEGY_CACHE_FIRST.equals(config.precacheStrategy) && ConnectivityMonitor.isOnline()) {
+            return null;
+        }
+        Asset asset = index().get(key(request.getUrl().toString()));
+        if (asset == null) {
+            return null;
+        }
+        try {
+            InputStream body = new FileInputStream(new File(objects, asset.hash));
+            String type = asset.type != null ? asset.type : URLConnection.guessContentTypeFromName(asset.url);
+            String mime = type != null ? type.split(";")[0].trim() : "application/octet-stream";
+            String encoding = mime.startsWith("text/") || mime.endsWith("javascript") || mime.endsWith("json") ? "UTF-8" : null;
+            return new WebResourceResponse(mime, encoding, 200, "OK", new HashMap<>(), body);
+        } catch (IOException e) {
+            Log.w(TAG, "Precached object missing for " + asset.url);
+            return null;
+        }
+    }
+
+    /**
+     * Checks the manifest and downloads a new version in the background. If the device is offline,
+     * the check runs once connectivity returns.
+     */
+    public void updateAsync() {
+        SWVConfig config = SWVConfig.get();
+        if (!config.precacheEnabled || config.appUrl.startsWith("file://")) {
+            return;
+        }
+        synchronized (this) {
+            if (updating) {
+                return;
+            }
+            if (!ConnectivityMonitor.isOnline()) {
+                if (retryListener == null) {
+                    retryListener = snapshot -> {
+                        if (snapshot.online) {
+                            ConnectivityMonitor.removeListener(retryListener);
+                            retryListener = null;
+                            updateAsync();
+                        }
+                    };
+                    ConnectivityMonitor.addListener(retryListener);
+                }
+                return;
+            }
+            updating = true;
+        }
+        worker.execute(() -> {
+            try {
+                update();
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Precache update failed: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    updating = false;
+                }
+            }
+        });
+    }
+
+    private void update() throws IOException, JSONException {
+        SWVConfig config = SWVConfig.get();
+        String manifestUrl = new URL(new URL(config.appUrl), config.precacheManifest).toString();
+        JSONObject pointer = readJson(new File(root, POINTER));
+
+        HttpURLConnection connection = open(manifestUrl);
+        String etag = pointer != null ? pointer.optString("etag", null) : null;
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            connection.disconnect();
+            return;
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("Manifest returned HTTP " + status);
+        }
+        String newEtag = connection.getHeaderField("ETag");
+        byte[] manifestBytes;
+        try (InputStream in = connection.getInputStream()) {
+            manifestBytes = readAll(in, MAX_MANIFEST_BYTES);
+        } finally {
+            connection.disconnect();
+        }
+
+        // The manifest's own digest names the version, so an unchanged manifest is a no-op
+        String version = sha256(manifestBytes);
+        if (pointer != null && version.equals(pointer.optString("version"))) {
+            return;
+        }
+
+        JSONObject manifest = new JSONObject(new String(manifestBytes, StandardCharsets.UTF_8));
+        JSONArray assets = manifest.getJSONArray("assets");
+        JSONObject versionIndex = new JSONObject();
+        URL base = new URL(manifestUrl);
+        if (!objects.exists() && !objects.mkdirs()) {
+            throw new IOException("Cannot create " + objects);
+        }
+        for (int i = 0; i < assets.length(); i++) {
+            JSONObject item = assets.getJSONObject(i);
+            URL assetUrl = new URL(base, item.getString("url"));
+            String url = assetUrl.toString();
+            if (!assetUrl.getHost().equalsIgnoreCase(config.host)) {
+                // intercept() only serves the app host, so anything else would be dead weight
+                Log.w(TAG, "Skipping precache entry outside the app host: " + url);
+                continue;
+            }
+            String hash = item.getString("hash").toLowerCase(Locale.ROOT);
+            long size = item.optLong("size", -1);
+            if (!hash.matches("[0-9a-f]{64}")) {
+                throw new IOException("Bad hash for " + url);
+            }
+            File object = new File(objects, hash);
+            if (!object.exists()) {
+                // Any failure aborts the whole update; objects already fetched are reused next time
+                fetch(url, hash, size, object);
+            }
+            JSONObject entry = new JSONObject();
+            entry.put("url", url);
+            entry.put("hash", hash);
+            entry.put("type", item.optString("type", null));
+            versionIndex.put(key(url), entry);
+        }
+
+        // Publish: version index first, then swap the pointer in one rename
+        if (!versions.exists() && !versions.mkdirs()) {
+            throw new IOException("Cannot create " + versions);
+        }
+        writeAtomically(new File(versions, version + ".json"), versionIndex.toString().getBytes(StandardCharsets.UTF_8));
+        JSONObject nextPointer = new JSONObject();
+        nextPointer.put("version", version);
+        nextPointer.put("etag", newEtag);
+        writeAtomically(new File(root, POINTER), nextPointer.toString().getBytes(StandardCharsets.UTF_8));
+        current = parseIndex(versionIndex);
+        Log.i(TAG, "Precache version " + manifest.optString("version", version) + " is now current (" + assets.length() + " files)");
+
+        collectGarbage(version, versionIndex);
+    }
+
+    private void fetch(String url, String hash, long size, File object) throws IOException {
+        File tmp = new File(objects, hash + ".tmp");
+        HttpURLConnection connection = open(url);
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + " for " + url);
+            }
+            MessageDigest digest = newDigest();
+            long total = 0;
+            try (InputStream in = connection.getInputStream(); OutputStream out = new FileOutputStream(tmp)) {
+                byte[] buffer = new byte[16 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    total += read;
+                    if (size >= 0 && total > size) {
+                        break; // fails the size check below without reading the rest
+                    }
+                }
+            }
+            if ((size >= 0 && total != size) || !hash.equals(toHex(digest.digest()))) {
+                throw new IOException("Integrity check failed for " + url);
+            }
+            if (!tmp.renameTo(object)) {
+                throw new IOException("Cannot store " + object);
+            }
+        } finally {
+            connection.disconnect();
+            tmp.delete();
+        }
+    }
+
+    // Drops objects and version files the current version doesn't reference
+    private void collectGarbage(String version, JSONObject versionIndex) {
+        Set<String> live = new HashSet<>();
+        Iterator<String> keys = versionIndex.keys();
+        while (keys.hasNext()) {
+            JSONObject entry = versionIndex.optJSONObject(keys.next());
+            if (entry != null) {
+                live.add(entry.optString("hash"));
+            }
+        }
+        File[] files = objects.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!live.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+        files = versions.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().equals(version + ".json")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private Map<String, Asset> index() {
+        Map<String, Asset> index = current;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (current == null) {
+                JSONObject pointer = readJson(new File(root, POINTER));
+                JSONObject versionIndex = pointer != null ? readJson(new File(versions, pointer.optString("version") + ".json")) : null;
+                current = versionIndex != null ? parseIndex(versionIndex) : Collections.emptyMap();
+            }
+            return current;
+        }
+    }
+
+    private static Map<String, Asset> parseIndex(JSONObject versionIndex) {
+        Map<String, Asset> index = new HashMap<>();
+        Iterator<String> keys = versionIndex.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            JSONObject entry = versionIndex.optJSONObject(key);
+            if (entry != null) {
+                index.put(key, new Asset(entry.optString("url"), entry.optString("hash"), entry.optString("type", null)));
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    // Lookup key: the URL without fragment or cache-buster
+    private static String key(String url) {
+        int hash = url.indexOf('#');
+        if (hash >= 0) {
+            url = url.substring(0, hash);
+        }
+        return Functions.strip_rid(url);
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setInstanceFollowRedirects(true);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+
+    private static JSONObject readJson(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return new JSONObject(new String(readAll(in, MAX_INDEX_BYTES), StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    private static byte[] readAll(InputStream in, int max) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > max) {
+                throw new IOException("Precache file is larger than " + max + " bytes");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String sha256(byte[] data) throws IOException {
+        return toHex(newDigest().digest(data));
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One file of the current version.
+     */
+    static class Asset {
+        final String url;
+        final String hash;
+        final String type;
+
+        Asset(String url, String hash, String type) {
+            this.url = url;
+            this.hash = hash;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the network path to the app host and other critical origins while the splash screen and
+ * WebView setup run. DNS answers land in the system resolver cache, which the WebView shares. The HEAD
+ * request leaves a kept-alive TLS connection in the HttpURLConnection pool, which the native caches
+ * (ResponseCache, NavigationCache, Precache) reuse when they fetch on the WebView's behalf.
+ */
+public final class Preconnector {
+
+    private static final String TAG = "Preconnector";
+    private static final int TIMEOUT = 5000;
+    private static final int MAX_THREADS = 4;
+
+    private static boolean started = false;
+
+    private Preconnector() {}
+
+    /**
+     * Starts the warmup in parallel for every origin. Returns immediately; runs once per process.
+     */
+    public static synchronized void start() {
+        SWVConfig config = SWVConfig.get();
+        if (started || !config.preconnectEnabled || !ConnectivityMonitor.isOnline()) {
+            return;
+        }
+        started = true;
+
+        Set<String> origins = new LinkedHashSet<>();
+        addOrigin(origins, config.appUrl);
+        for (String origin : config.preconnectOrigins) {
+            addOrigin(origins, origin);
+        }
+        if (origins.isEmpty()) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(MAX_THREADS, origins.size()), r -> {
+            Thread thread = new Thread(r, "swv-preconnect-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String origin : origins) {
+            pool.execute(() -> warm(origin));
+        }
+        pool.shutdown();
+    }
+
+    private static void addOrigin(Set<String> origins, String url) {
+        if (url == null) {
+            return;
+        }
+        try {
+            URL parsed = new URL(url.trim());
+            if ("http".equals(parsed.getProtocol()) || "https".equals(parsed.getProtocol())) {
+                origins.add(parsed.getProtocol() + "://" + parsed.getAuthority());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring invalid preconnect origin: " + url);
+        }
+    }
+
+    private static void warm(String origin) {
+        long start = System.nanoTime();
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(origin + "/");
+            InetAddress.getAllByName(url.getHost());
+            long resolved = System.nanoTime();
+
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setInstanceFollowRedirects(false);
+            connection.setUseCaches(false);
+            connection.getResponseCode();
+            // Closing the (empty) body instead of disconnecting hands the socket back to the pool
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read() != -1) {
+                    // drain
+                }
+            } catch (IOException ignored) {
+                // Error statuses have no input stream; the connection is still warm
+            }
+            if (SWVConfig.get().debugMode) {
+                Log.d(TAG, origin + " dns=" + (resolved - start) / 1000000 + "ms connect=" + (System.nanoTime() - resolved) / 1000000 + "ms");
+            }
+        } catch (IOException e) {
+            if (connection != null) connection.disconnect();
+            Log.w(TAG, "Preconnect to " + origin + " failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.os.Process;
+import android.util.AtomicFile;
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Remote layer over swv.properties. The document at remote.config.url is fetched in the background,
+ * its signature checked against remote.config.public.key, and its values written to the overrides file
+ * that SWVConfig reads on the next launch. The server may answer with the whole document, or with a delta
+ * against the version named in the X-SWV-Config-Base request header; any HTTP server works as a stand-in.
+ */
+public final class RemoteConfig {
+
+    private static final String TAG = "RemoteConfig";
+    private static final String STATE_FILE = "swv_remote_config.json";
+    private static final String SIGNATURE_HEADER = "X-SWV-Signature";
+    private static final String BASE_HEADER = "X-SWV-Config-Base";
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 15000;
+    private static final int MAX_BYTES = 256 * 1024;
+
+    // Keys the remote document can't change: build-time values and the remote layer itself
+    private static final String[] PROTECTED_PREFIXES = {"build.", "remote.config."};
+
+    private static RemoteConfig instance;
+
+    private final AtomicFile stateFile;
+    private final AtomicFile overridesFile;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-remote-config");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private boolean fetching = false;
+    private ConnectivityMonitor.Listener retryListener;
+
+    private RemoteConfig(File stateFile, File overridesFile) {
+        this.stateFile = new AtomicFile(stateFile);
+        this.overridesFile = new AtomicFile(overridesFile);
+    }
+
+    public static synchronized RemoteConfig getInstance(Context context) {
+        if (instance == null) {
+            instance = new RemoteConfig(new File(context.getFilesDir(), STATE_FILE), SWVConfig.overridesFile(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Checks for a newer remote config in the background. If the device is offline, the check runs
+     * once connectivity returns. Never blocks the caller.
+     */
+    public void fetchAsync() {
+        if (SWVConfig.get().remoteConfigUrl.isEmpty()) {
+            // Remote config was switched off in this build; don't keep values nobody can update any more
+            worker.execute(this::clear);
+            return;
+        }
+        synchronized (this) {
+            if (fetching) {
+                return;
+            }
+            if (!ConnectivityMonitor.isOnline()) {
+                if (retryListener == null) {
+                    retryListener = snapshot -> {
+                        if (snapshot.online) {
+                            ConnectivityMonitor.removeListener(retryListener);
+                            retryListener = null;
+                            fetchAsync();
+                        }
+                    };
+                    ConnectivityMonitor.addListener(retryListener);
+                }
+                return;
+            }
+            fetching = true;
+        }
+        worker.execute(() -> {
+            try {
+                fetch();
+            } catch (IOException | JSONException | GeneralSecurityException e) {
+                Log.w(TAG, "Remote config update failed: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    fetching = false;
+                }
+            }
+        });
+    }
+
+    private void fetch() throws IOException, JSONException, GeneralSecurityException {
+        SWVConfig config = SWVConfig.get();
+        if (config.remoteConfigPublicKey.isEmpty()) {
+            throw new GeneralSecurityException("remote.config.public.key is not set");
+        }
+        JSONObject state = readState();
+        long now = System.currentTimeMillis();
+        if (state != null && now - state.optLong("fetchedAt") < config.remoteConfigIntervalMinutes * 60000L) {
+            return;
+        }
+        Update update = check(config.remoteConfigUrl, state, decodeKey(config.remoteConfigPublicKey), RemoteConfig::decodeSignature, now);
+        if (update == null) {
+            return;
+        }
+        if (update.values != null) {
+            // Overrides first: if the state write is lost, the next fetch simply repeats this one
+            writeOverrides(update.values);
+            Log.i(TAG, "Remote config version " + update.state.optLong("version") + " saved; applies on next launch");
+        }
+        write(stateFile, update.state.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void clear() {
+        if (overridesFile.getBaseFile().exists() || stateFile.getBaseFile().exists()) {
+            overridesFile.delete();
+            stateFile.delete();
+            Log.i(TAG, "remote.config.url is not set; saved remote values removed");
+        }
+    }
+
+    /**
+     * Reads the X-SWV-Signature header; android.util.Base64 in the app.
+     */
+    interface SignatureDecoder {
+        byte[] decode(String header) throws SignatureException;
+    }
+
+    /**
+     * Outcome of one check: the state to save and, when the document changed, the values for the overrides file.
+     */
+    static final class Update {
+        final JSONObject state;
+        final JSONObject values;
+
+        Update(JSONObject state, JSONObject values) {
+            this.state = state;
+            this.values = values;
+        }
+    }
+
+    /**
+     * One round against the server, without Android types so it can run against a local server in JVM tests:
+     * a conditional request carrying the held ETag and version, a full re-fetch when a delta doesn't fit what
+     * is held, then the signature and version checks.
+     * @return null when the server has nothing and nothing is held
+     */
+    static Update check(String url, JSONObject state, PublicKey key, SignatureDecoder decoder, long now)
+            throws IOException, JSONException, GeneralSecurityException {
+        Download download = download(url, state, key, decoder);
+        if (download != null && isUnusableDelta(state, download.body)) {
+            // Delta against a version we don't have; ask for the whole document
+            download = download(url, null, key, decoder);
+            if (download.body.has("base")) {
+                throw new IOException("Remote config sent a delta for a full request");
+            }
+        }
+
+        JSONObject next = new JSONObject();
+        JSONObject values = null;
+        if (download == null) {
+            // Not modified
+            if (state == null) {
+                return null;
+            }
+            next = state;
+        } else {
+            values = nextValues(state, download.body);
+            next.put("version", download.body.getLong("version"));
+            next.put("etag", download.etag);
+            next.put("values", values);
+        }
+        next.put("fetchedAt", now);
+        return new Update(next, values);
+    }
+
+    // Returns null for 304 Not Modified
+    private static Download download(String url, JSONObject state, PublicKey key, SignatureDecoder decoder)
+            throws IOException, JSONException, GeneralSecurityException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Accept", "application/json");
+            if (state != null) {
+                String etag = state.optString("etag", null);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                connection.setRequestProperty(BASE_HEADER, Long.toString(state.optLong("version", 0)));
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && state != null) {
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Remote config returned HTTP " + status);
+            }
+            String etag = connection.getHeaderField("ETag");
+            String signature = connection.getHeaderField(SIGNATURE_HEADER);
+            byte[] body;
+            try (InputStream in = connection.getInputStream()) {
+                body = readAll(in);
+            }
+            if (signature == null) {
+                throw new SignatureException("Remote config is not signed");
+            }
+            verify(body, decoder.decode(signature.trim()), key);
+            return new Download(new JSONObject(new String(body, StandardCharsets.UTF_8)), etag);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // A delta is only usable against the exact version we hold
+    static boolean isUnusableDelta(JSONObject state, JSONObject body) {
+        return body.has("base") && (state == null || body.optLong("base") != state.optLong("version", 0));
+    }
+
+    /**
+     * Values of the next version, from the saved state and a verified document (full or delta).
+     * Refuses to go back to an older version, so a replayed document can't roll settings back.
+     */
+    static JSONObject nextValues(JSONObject state, JSONObject body) throws JSONException, GeneralSecurityException, IOException {
+        long version = state != null ? state.optLong("version", 0) : 0;
+        long nextVersion = body.getLong("version");
+        if (nextVersion < version) {
+            throw new SignatureException("Remote config version " + nextVersion + " is older than " + version);
+        }
+        if (!body.has("base")) {
+            return body.getJSONObject("values");
+        }
+        if (isUnusableDelta(state, body)) {
+            throw new IOException("Remote config delta is against version " + body.optLong("base") + ", not " + version);
+        }
+        return applyDelta(state.getJSONObject("values"), body);
+    }
+
+    private static JSONObject applyDelta(JSONObject values, JSONObject delta) throws JSONException {
+        JSONObject merged = new JSONObject(values.toString());
+        JSONObject set = delta.optJSONObject("set");
+        if (set != null) {
+            Iterator<String> keys = set.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                merged.put(key, set.get(key));
+            }
+        }
+        JSONArray unset = delta.optJSONArray("unset");
+        if (unset != null) {
+            for (int i = 0; i < unset.length(); i++) {
+                merged.remove(unset.optString(i));
+            }
+        }
+        return merged;
+    }
+
+    private void writeOverrides(JSONObject values) throws IOException {
+        Properties overrides = toOverrides(values);
+        FileOutputStream out = overridesFile.startWrite();
+        try {
+            overrides.store(out, "Written by RemoteConfig; do not edit");
+            overridesFile.finishWrite(out);
+        } catch (IOException e) {
+            overridesFile.failWrite(out);
+            throw e;
+        }
+    }
+
+    // Remote values as override properties, without nulls and protected keys
+    static Properties toOverrides(JSONObject values) {
+        Properties overrides = new Properties();
+        Iterator<String> keys = values.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = values.opt(key);
+            if (value == null || value == JSONObject.NULL) {
+                continue;
+            }
+            if (isProtected(key)) {
+                Log.w(TAG, "Ignoring remote value for protected key " + key);
+                continue;
+            }
+            overrides.setProperty(key, toProperty(value));
+        }
+        return overrides;
+    }
+
+    // Arrays become the comma-separated lists swv.properties uses
+    private static String toProperty(Object value) {
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            StringBuilder joined = new StringBuilder();
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) joined.append(',');
+                joined.append(array.optString(i));
+            }
+            return joined.toString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static boolean isProtected(String key) {
+        for (String prefix : PROTECTED_PREFIXES) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] decodeSignature(String header) throws SignatureException {
+        try {
+            return Base64.decode(header, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException("Remote config signature is not valid base64");
+        }
+    }
+
+    // Checks a decoded signature over the raw body bytes
+    static void verify(byte[] body, byte[] signature, PublicKey key) throws GeneralSecurityException {
+        Signature verifier = Signature.getInstance("EC".equals(key.getAlgorithm()) ? "SHA256withECDSA" : "SHA256withRSA");
+        verifier.initVerify(key);
+        verifier.update(body);
+        boolean valid;
+        try {
+            valid = signature != null && verifier.verify(signature);
+        } catch (SignatureException e) {
+            valid = false; // malformed DER
+        }
+        if (!valid) {
+            throw new SignatureException("Remote config signature does not match");
+        }
+    }
+
+    // Accepts the bare base64 key or a PEM block
+    private static PublicKey decodeKey(String encoded) throws GeneralSecurityException {
+        String base64 = encoded.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+        X509EncodedKeySpec spec;
+        try {
+            spec = new X509EncodedKeySpec(Base64.decode(base64, Base64.DEFAULT));
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("remote.config.public.key is not valid base64");
+        }
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        } catch (GeneralSecurityException e) {
+            return KeyFactory.getInstance("RSA").generatePublic(spec);
+        }
+    }
+
+    private JSONObject readState() {
+        try {
+            return new JSONObject(new String(stateFile.readFully(), StandardCharsets.UTF_8));
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Discarding unreadable remote config state: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(AtomicFile file, byte[] data) throws IOException {
+        FileOutputStream out = file.startWrite();
+        try {
+            out.write(data);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            file.failWrite(out);
+            throw e;
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > MAX_BYTES) {
+                throw new IOException("Remote config is larger than " + MAX_BYTES + " bytes");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Download {
+        final JSONObject body;
+        final String etag;
+
+        Download(JSONObject body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Disk-backed HTTP cache for static sub-resources of the app origin.
+ * Plugged into WebViewClient.shouldInterceptRequest, it keeps JS/CSS/images/fonts on local
+ * storage with LRU eviction, honours Cache-Control and revalidates with ETag/Last-Modified.
+ * Entries live under cacheDir/swv_http/&lt;ASWV_HOST&gt;, so each origin has its own store.
+ */
+public class ResponseCache {
+
+    private static final String TAG = "ResponseCache";
+    private static final String CACHE_DIR = "swv_http";
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 20000;
+    private static final long HEURISTIC_MAX_AGE = 24L * 60 * 60 * 1000;
+
+    // Only static assets are cached; API calls and documents always go to the network
+    private static final Set<String> STATIC_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "js", "mjs", "css", "png", "jpg", "jpeg", "gif", "webp", "avif", "svg", "ico",
+            "woff", "woff2", "ttf", "otf", "eot", "json", "wasm"
+    ));
+
+    // Response headers replayed to the WebView when serving from disk
+    private static final String[] KEPT_HEADERS = {
+            "Access-Control-Allow-Origin", "Timing-Allow-Origin", "Content-Language"
+    };
+
+    private static ResponseCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean indexLoaded = false;
+
+    private ResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public static synchronized ResponseCache getInstance(Context context) {
+        if (instance == null) {
+            SWVConfig config = SWVConfig.get();
+            String origin = config.host.replaceAll("[^A-Za-z0-9.\\-]", "_");
+            File dir = new File(new File(context.getCacheDir(), CACHE_DIR), origin.isEmpty() ? "_local" : origin);
+            instance = new ResponseCache(dir, (long) config.cacheSizeMb * 1024 * 1024);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns a response for the request if this cache handles it, or null to let the WebView load it itself.
+     * Called on a WebView background thread, so network and disk I/O are allowed here.
+     */
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        if (!SWVConfig.get().cacheEnabled || !isCacheable(request)) {
+            return null;
+        }
+        String url = stripFragment(request.getUrl().toString());
+        String key = hash(url);
+        Entry cached = get(key);
+
+        if (cached != null && cached.isFresh()) {
+            WebResourceResponse response = fromDisk(key, cached);
+            if (response != null) {
+                return response;
+            }
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            connection = open(url, request.getRequestHeaders());
+            if (cached != null) {
+                if (cached.etag != null) connection.setRequestProperty("If-None-Match", cached.etag);
+                if (cached.lastModified != null) connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+            int status = connection.getResponseCode();
+            storeCookies(url, connection);
+
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // Revalidated: keep the body, refresh freshness from the new headers
+                cached.expires = freshUntil(connection, cached.lastModified);
+                cached.noCache = hasDirective(connection, "no-cache");
+                writeMeta(key, cached);
+                connection.disconnect();
+                return fromDisk(key, cached);
+            }
+
+            if (status == HttpURLConnection.HTTP_OK && isStorable(connection)) {
+                return storeAndServe(key, url, connection);
+            }
+
+            // Not storable: hand the live stream to the WebView
+            return passThrough(connection, status);
+        } catch (IOException e) {
+            if (connection != null) connection.disconnect();
+            if (cached != null) {
+                // Flaky network, serve the stale copy rather than failing the page
+                Log.w(TAG, "Network failed for " + url + ", serving stale copy");
+                return fromDisk(key, cached);
+            }
+            Log.w(TAG, "Network failed for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Removes every entry of this origin.
+     */
+    public synchronized void clear() {
+        loadIndex();
+        for (String key : new ArrayList<>(index.keySet())) {
+            remove(key);
+        }
+    }
+
+    private boolean isCacheable(WebResourceRequest request) {
+        if (request.isForMainFrame() || !"GET".equalsIgnoreCase(request.getMethod())) {
+            return false;
+        }
+        String scheme = request.getUrl().getScheme();
+        if (!"http".equals(scheme) && !"https".equals(scheme)) {
+            return false;
+        }
+        String host = request.getUrl().getHost();
+        if (host == null || !host.equalsIgnoreCase(SWVConfig.get().host)) {
+            return false;
+        }
+        Map<String, String> headers = request.getRequestHeaders();
+        if (headers != null && (headers.containsKey("Range") || headers.containsKey("range"))) {
+            return false;
+        }
+        String path = request.getUrl().getPath();
+        if (path == null) {
+            return false;
+        }
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') && STATIC_EXTENSIONS.contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    static HttpURLConnection open(String url, Map<String, String> requestHeaders) throws IOException {
+        return open(url, requestHeaders, true);
+    }
+
+    /**
+     * Opens a connection carrying the page's request headers and cookies. Navigations pass
+     * followRedirects=false so the WebView follows redirects itself and its URL stays right.
+     */
+    static HttpURLConnection open(String url, Map<String, String> requestHeaders, boolean followRedirects) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setInstanceFollowRedirects(followRedirects);
+        connection.setUseCaches(false);
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                String name = header.getKey();
+                // Let HttpURLConnection negotiate compression so bodies are stored decoded
+                if (!"Accept-Encoding".equalsIgnoreCase(name) && !"Range".equalsIgnoreCase(name)) {
+                    connection.setRequestProperty(name, header.getValue());
+                }
+            }
+        }
+        String cookies = CookieManager.getInstance().getCookie(url);
+        if (cookies != null && !cookies.isEmpty()) {
+            connection.setRequestProperty("Cookie", cookies);
+        }
+        return connection;
+    }
+
+    static void storeCookies(String url, HttpURLConnection connection) {
+        List<String> cookies = connection.getHeaderFields().get("Set-Cookie");
+        if (cookies != null) {
+            CookieManager manager = CookieManager.getInstance();
+            for (String cookie : cookies) {
+                manager.setCookie(url, cookie);
+            }
+            CookieStore.invalidate();
+        }
+    }
+
+    private boolean isStorable(HttpURLConnection connection) {
+        if (hasDirective(connection, "no-store") || connection.getHeaderField("Set-Cookie") != null) {
+            return false;
+        }
+        String vary = connection.getHeaderField("Vary");
+        if (vary != null && !vary.trim().equalsIgnoreCase("Accept-Encoding")) {
+            return false;
+        }
+        long length = connection.getContentLengthLong();
+        return length < 0 || length <= maxBytes / 8;
+    }
+
+    static boolean hasDirective(HttpURLConnection connection, String directive) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains(directive);
+    }
+
+    // Computes the absolute expiry time from Cache-Control/Expires, falling back to the RFC 7234 heuristic
+    private static long freshUntil(HttpURLConnection connection, String lastModified) {
+        long now = System.currentTimeMillis();
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-cache")) {
+                    return 0;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        long maxAge = Long.parseLong(directive.substring(8).trim());
+                        long age = 0;
+                        String ageHeader = connection.getHeaderField("Age");
+                        if (ageHeader != null) age = Long.parseLong(ageHeader.trim());
+                        return now + Math.max(0, maxAge - age) * 1000;
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        long expires = connection.getHeaderFieldDate("Expires", 0);
+        if (expires > 0) {
+            return expires;
+        }
+        long modified = lastModified != null ? connection.getHeaderFieldDate("Last-Modified", 0) : 0;
+        if (modified > 0) {
+            long date = connection.getHeaderFieldDate("Date", now);
+            return now + Math.min(HEURISTIC_MAX_AGE, Math.max(0, (date - modified) / 10));
+        }
+        return 0;
+    }
+
+    // Stores the body and serves it from disk; a body that turns out too large is served from what was read plus the live rest
+    private WebResourceResponse storeAndServe(String key, String url, HttpURLConnection connection) throws IOException {
+        File tmp = new File(directory, key + "." + Thread.currentThread().getId() + ".tmp");
+        if (!directory.exists() && !directory.mkdirs()) {
+            connection.disconnect();
+            throw new IOException("Cannot create " + directory);
+        }
+        long size = 0;
+        boolean complete = false;
+        InputStream in = connection.getInputStream();
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while (size <= maxBytes / 8 && (read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                size += read;
+            }
+            complete = size <= maxBytes / 8;
+        } catch (IOException e) {
+            in.close();
+            connection.disconnect();
+            tmp.delete();
+            throw e;
+        }
+        if (!complete) {
+            // Too large to be worth caching, but don't make the WebView fetch it a second time
+            return spill(tmp, in, connection);
+        }
+        in.close();
+        Entry entry = store(key, url, connection, tmp, size);
+        connection.disconnect();
+        return entry != null ? fromDisk(key, entry) : null;
+    }
+
+    static WebResourceResponse spill(File head, InputStream rest, HttpURLConnection connection) throws IOException {
+        final HttpURLConnection live = connection;
+        InputStream body = new SequenceInputStream(new FileInputStream(head), rest) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    head.delete();
+                    live.disconnect();
+                }
+            }
+        };
+        String[] type = splitContentType(connection.getContentType(), connection.getURL().toString());
+        Map<String, String> headers = new HashMap<>();
+        for (String name : KEPT_HEADERS) {
+            String value = connection.getHeaderField(name);
+            if (value != null) headers.put(name, value);
+        }
+        return new WebResourceResponse(type[0], type[1], 200, "OK", headers, body);
+    }
+
+    private Entry store(String key, String url, HttpURLConnection connection, File tmp, long size) {
+        Entry entry = new Entry();
+        entry.url = url;
+        entry.size = size;
+        entry.contentType = connection.getContentType();
+        entry.etag = connection.getHeaderField("ETag");
+        entry.lastModified = connection.getHeaderField("Last-Modified");
+        entry.expires = freshUntil(connection, entry.lastModified);
+        entry.noCache = hasDirective(connection, "no-cache");
+        for (String name : KEPT_HEADERS) {
+            String value = connection.getHeaderField(name);
+            if (value != null) entry.headers.put(name, value);
+        }
+
+        synchronized (this) {
+            File body = bodyFile(key);
+            if (!tmp.renameTo(body)) {
+                tmp.delete();
+                return null;
+            }
+            writeMeta(key, entry);
+            Entry previous = index.put(key, entry);
+            totalBytes += size - (previous != null ? previous.size : 0);
+            trim();
+        }
+        return entry;
+    }
+
+    private WebResourceResponse fromDisk(String key, Entry entry) {
+        try {
+            InputStream body = new FileInputStream(bodyFile(key));
+            String[] type = splitContentType(entry.contentType, entry.url);
+            return new WebResourceResponse(type[0], type[1], 200, "OK", new HashMap<>(entry.headers), body);
+        } catch (IOException e) {
+            synchronized (this) {
+                remove(key);
+            }
+            return null;
+        }
+    }
+
+    static WebResourceResponse passThrough(HttpURLConnection connection, int status) throws IOException {
+        if (status >= 300 && status < 400) {
+            // WebResourceResponse rejects redirects; let the WebView follow them natively
+            connection.disconnect();
+            return null;
+        }
+        InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (stream == null) {
+            stream = new ByteArrayInputStream(new byte[0]);
+        }
+        String[] type = splitContentType(connection.getContentType(), connection.getURL().toString());
+        String reason = connection.getResponseMessage();
+        Map<String, String> headers = new HashMap<>();
+        for (String name : KEPT_HEADERS) {
+            String value = connection.getHeaderField(name);
+            if (value != null) headers.put(name, value);
+        }
+        final HttpURLConnection live = connection;
+        InputStream body = new FilterInputStream(stream) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                live.disconnect();
+            }
+        };
+        return new WebResourceResponse(type[0], type[1], status, reason == null || reason.isEmpty() ? "OK" : reason, headers, body);
+    }
+
+    static String[] splitContentType(String contentType, String url) {
+        String mime = null;
+        String encoding = null;
+        if (contentType != null) {
+            String[] parts = contentType.split(";");
+            mime = parts[0].trim();
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i].trim();
+                if (part.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                    encoding = part.substring(8).replace("\"", "");
+                }
+            }
+        }
+        if (mime == null || mime.isEmpty()) {
+            mime = URLConnection.guessContentTypeFromName(url);
+        }
+        return new String[]{mime != null ? mime : "application/octet-stream", encoding};
+    }
+
+    private synchronized Entry get(String key) {
+        loadIndex();
+        Entry entry = index.get(key);
+        if (entry != null && !bodyFile(key).exists()) {
+            remove(key);
+            return null;
+        }
+        if (entry != null) {
+            // loadIndex orders by meta mtime, so a hit has to move it for LRU to survive restarts
+            metaFile(key).setLastModified(System.currentTimeMillis());
+        }
+        return entry;
+    }
+
+    // Reads the on-disk metadata once, ordering entries by last use so LRU survives restarts
+    private void loadIndex() {
+        if (indexLoaded) {
+            return;
+        }
+        indexLoaded = true;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> metas = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(".meta")) {
+                metas.add(file);
+            } else if (file.getName().endsWith(".tmp")) {
+                file.delete();
+            }
+        }
+        metas.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File meta : metas) {
+            String key = meta.getName().substring(0, meta.getName().length() - 5);
+            Entry entry = readMeta(meta);
+            if (entry != null && bodyFile(key).exists()) {
+                index.put(key, entry);
+                totalBytes += entry.size;
+            } else {
+                meta.delete();
+                bodyFile(key).delete();
+            }
+        }
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            totalBytes -= eldest.getValue().size;
+            bodyFile(eldest.getKey()).delete();
+            metaFile(eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size;
+        }
+        bodyFile(key).delete();
+        metaFile(key).delete();
+    }
+
+    private void writeMeta(String key, Entry entry) {
+        try (OutputStream out = new FileOutputStream(metaFile(key))) {
+            out.write(entry.toJson().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Could not write cache metadata", e);
+        }
+    }
+
+    private Entry readMeta(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+            return Entry.fromJson(new JSONObject(new String(data, 0, offset, StandardCharsets.UTF_8)));
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    private File bodyFile(String key) {
+        return new File(directory, key + ".body");
+    }
+
+    private File metaFile(String key) {
+        return new File(directory, key + ".meta");
+    }
+
+    static String stripFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash >= 0 ? url.substring(0, hash) : url;
+    }
+
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    /**
+     * Cached response metadata; the body is stored next to it as &lt;key&gt;.body.
+     */
+    static class Entry {
+        String url;
+        long size;
+        String contentType;
+        String etag;
+        String lastModified;
+        long expires;
+        boolean noCache;
+        final Map<String, String> headers = new HashMap<>();
+
+        boolean isFresh() {
+            return !noCache && System.currentTimeMillis() < expires;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("url", url);
+            json.put("size", size);
+            json.put("contentType", contentType);
+            json.put("etag", etag);
+            json.put("lastModified", lastModified);
+            json.put("expires", expires);
+            json.put("noCache", noCache);
+            json.put("headers", new JSONObject(headers));
+            return json;
+        }
+
+        static Entry fromJson(JSONObject json) {
+            Entry entry = new Entry();
+            entry.url = json.optString("url");
+            entry.size = json.optLong("size");
+            entry.contentType = json.optString("contentType", null);
+            entry.etag = json.optString("etag", null);
+            entry.lastModified = json.optString("lastModified", null);
+            entry.expires = json.optLong("expires");
+            entry.noCache = json.optBoolean("noCache");
+            JSONObject headers = json.optJSONObject("headers");
+            if (headers != null) {
+                for (Iterator<String> it = headers.keys(); it.hasNext(); ) {
+                    String name = it.next();
+                    entry.headers.put(name, headers.optString(name));
+                }
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Immutable, typed snapshot of the app configuration. The values of assets/swv.properties are compiled
+ * into ConfigDefaults at build time, so the first snapshot needs no asset I/O or parsing. Runtime overrides
+ * in files/swv_config.properties are folded in by loadOverrides before the first activity starts.
+ * Any thread may call get(); the SWVContext static fields mirror the current snapshot on the main thread.
+ */
+public final class SWVConfig {
+
+    private static final String TAG = "SWVConfig";
+    private static final String OVERRIDES_FILE = "swv_config.properties";
+
+    // Key -> raw value, or null when the key is not set
+    private interface Source {
+        String get(String key);
+    }
+
+    private static volatile SWVConfig current = new SWVConfig(ConfigDefaults::get);
+
+    // Debug
+    public final boolean debugMode;
+
+    // URL Configuration
+    public final String appUrl;
+    public final String offlineUrl;
+    public final String searchUrl;
+    public final String shareUrlSuffix;
+    public final String externalUrlExceptions;
+    public final String host;
+    // Routes URLs for the app host and the exception list
+    public final UrlRouter router;
+
+    // Feature Flags
+    public final boolean uploads;
+    public final boolean cameraUploads;
+    public final boolean multipleUploads;
+    public final boolean copyPaste;
+    public final boolean pullRefresh;
+    public final boolean progressBar;
+    public final boolean zoom;
+    public final boolean saveForm;
+    public final boolean openExternalUrls;
+    public final boolean chromeTabs;
+    public final boolean exitDialog;
+
+    // Upload image processing
+    public final boolean uploadImageEnabled;
+    public final int uploadImageMaxDimension;
+    public final int uploadImageQuality;
+    public final String uploadImageFormat;
+
+    // Security
+    public final boolean verifySsl;
+
+    // Remote Config
+    public final String remoteConfigUrl;
+    public final String remoteConfigPublicKey;
+    public final int remoteConfigIntervalMinutes;
+
+    // Caching
+    public final boolean cacheEnabled;
+    public final int cacheSizeMb;
+    public final String cacheBustMode;
+    public final boolean precacheEnabled;
+    public final String precacheManifest;
+    public final String precacheStrategy;
+    public final boolean preconnectEnabled;
+    public final List<String> preconnectOrigins;
+    public final String navStrategy;
+    public final List<String> navStrategyPaths;
+
+    // Downloads
+    public final boolean downloadEngine;
+    public final int downloadSegments;
+    public final int downloadMaxConcurrent;
+    public final int downloadMaxRetries;
+    public final boolean downloadUnmeteredOnly;
+    public final int downloadMeteredMaxMb;
+
+    // UI & Theme
+    public final int orientation;
+    public final int layout;
+    public final boolean drawerHeader;
+    public final boolean splashExtend;
+
+    // User Agent
+    public final boolean userAgentPostfixEnabled;
+    public final String userAgentPostfix;
+    public final boolean userAgentOverrideEnabled;
+    public final String userAgentOverride;
+
+    // Analytics
+    public final String gtagId;
+
+    // Plugins & Permissions
+    public final List<String> enabledPlugins;
+    public final boolean playground;
+    public final List<String> requiredPermissions;
+
+    // RatingsPlugin
+    public final int ratingDays;
+    public final int ratingTimes;
+    public final int ratingInterval;
+
+    // BiometricPlugin
+    public final boolean biometricOnLaunch;
+
+    private final Source source;
+
+    private SWVConfig(Source source) {
+        this.source = source;
+
+        debugMode = getBoolean("debug.mode", true);
+
+        appUrl = getString("app.url", "https://aidashboardartstudio.netlify.app/");
+        offlineUrl = getString("offline.url", "file:///android_asset/web/offline.html");
+        searchUrl = getString("search.url", "https://www.google.com/search?q=");
+        shareUrlSuffix = getString("share.url.suffix", "/?share=");
+        externalUrlExceptions = getString("external.url.exception.list", "mgks.dev,docs.mgks.dev,mgks.github.io");
+        host = Functions.aswm_host(appUrl);
+        router = UrlRouter.build(host, externalUrlExceptions);
+
+        uploads = getBoolean("feature.uploads", true);
+        cameraUploads = getBoolean("feature.camera.uploads", true);
+        multipleUploads = getBoolean("feature.multiple.uploads", true);
+        uploadImageEnabled = getBoolean("upload.image.enabled", true);
+        uploadImageMaxDimension = getInt("upload.image.max.dimension", 2048);
+        uploadImageQuality = Math.max(1, Math.min(100, getInt("upload.image.quality", 80)));
+        uploadImageFormat = getString("upload.image.format", "jpeg").trim().toLowerCase(Locale.ROOT);
+        copyPaste = getBoolean("feature.copy.paste", true);
+        pullRefresh = getBoolean("feature.pull.refresh", true);
+        progressBar = getBoolean("feature.progress.bar", true);
+        zoom = getBoolean("feature.zoom", false);
+        saveForm = getBoolean("feature.save.form", false);
+        openExternalUrls = getBoolean("feature.open.external.urls", true);
+        chromeTabs = getBoolean("feature.chrome.tabs", true);
+        exitDialog = getBoolean("feature.exit.dialog", true);
+
+        verifySsl = getBoolean("security.verify.ssl", true);
+
+        remoteConfigUrl = getString("remote.config.url", "").trim();
+        remoteConfigPublicKey = getString("remote.config.public.key", "").trim();
+        remoteConfigIntervalMinutes = getInt("remote.config.interval.minutes", 60);
+
+        cacheEnabled = getBoolean("cache.enabled", true);
+        cacheSizeMb = getInt("cache.size.mb", 50);
+        cacheBustMode = getString("cache.bust.mode", "version").trim().toLowerCase(Locale.ROOT);
+        precacheEnabled = getBoolean("precache.enabled", false);
+        precacheManifest = getString("precache.manifest", "swv-manifest.json");
+        precacheStrategy = getString("precache.strategy", Precache.STRATEGY_OFFLINE).trim().toLowerCase(Locale.ROOT);
+        preconnectEnabled = getBoolean("preconnect.enabled", true);
+        preconnectOrigins = getList("preconnect.origins");
+        navStrategy = getString("navigation.strategy", NavigationCache.STRATEGY_NETWORK).trim().toLowerCase(Locale.ROOT);
+        navStrategyPaths = getList("navigation.strategy.paths");
+
+        downloadEngine = getBoolean("download.engine.enabled", true);
+        downloadSegments = Math.max(1, getInt("download.segments", 4));
+        downloadMaxConcurrent = Math.max(1, getInt("download.max.concurrent", 2));
+        downloadMaxRetries = getInt("download.max.retries", 5);
+        downloadUnmeteredOnly = getBoolean("download.unmetered.only", false);
+        downloadMeteredMaxMb = getInt("download.metered.max.mb", 0);
+
+        orientation = getInt("ui.orientation", 0);
+        layout = getInt("ui.layout", 1);
+        drawerHeader = getBoolean("ui.drawer.header", true);
+        splashExtend = getBoolean("ui.splash.extend", true);
+
+        userAgentPostfixEnabled = getBoolean("agent.postfix.enabled", true);
+        userAgentPostfix = getString("agent.postfix.value", "SWVAndroid");
+        userAgentOverrideEnabled = getBoolean("agent.override.enabled", false);
+        userAgentOverride = getString("agent.override.value", "Mozilla/5.0 (Linux; Android 6.0; Nexus 5 Build/MRA58N) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/59.0.3071.115 Mobile Safari/537.36");
+
+        gtagId = getString("analytics.gtag.id", "G-7XXC1C7CRQ");
+
+        enabledPlugins = getList("plugins.enabled",
+                "AdMobPlugin", "JSInterfacePlugin", "ToastPlugin",
+                "QRScannerPlugin", "BiometricPlugin", "ImageCompressionPlugin");
+        playground = getBoolean("plugins.playground.enabled", true);
+        requiredPermissions = getList("permissions.on.launch", "NOTIFICATIONS", "LOCATION");
+
+        ratingDays = getInt("rating.install.days", 3);
+        ratingTimes = getInt("rating.launch.times", 10);
+        ratingInterval = getInt("rating.remind.interval", 2);
+
+        biometricOnLaunch = getBoolean("biometric.trigger.launch", false);
+    }
+
+    /**
+     * Returns the current snapshot. Hold on to it for the duration of one operation to read consistent values.
+     */
+    public static SWVConfig get() {
+        return current;
+    }
+
+    /**
+     * Reads the runtime overrides file and, if it sets anything, publishes a snapshot that includes them.
+     * Synchronous on purpose: App.onCreate calls it before any activity exists, so nothing can read the
+     * build-time values first. It is the only config I/O at launch, and only happens when remote.config.url
+     * is set; the file is a few KB at most (RemoteConfig caps what it writes).
+     * @return the current snapshot after loading
+     */
+    public static SWVConfig loadOverrides(Context context) {
+        if (current.remoteConfigUrl.isEmpty()) {
+            // Only RemoteConfig writes the file; without it, leftovers from an earlier build don't apply
+            return current;
+        }
+        Properties overrides = new Properties();
+        try (InputStream in = new AtomicFile(overridesFile(context)).openRead()) {
+            overrides.load(in);
+        } catch (FileNotFoundException e) {
+            return current;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Could not read config overrides: " + e.getMessage());
+            return current;
+        }
+        if (!overrides.isEmpty()) {
+            current = new SWVConfig(key -> overrides.getProperty(key, ConfigDefaults.get(key)));
+            Log.d(TAG, "Applied " + overrides.size() + " config override(s)");
+        }
+        return current;
+    }
+
+    /**
+     * Properties file whose entries take precedence over swv.properties, read on the next launch.
+     * Written through AtomicFile by RemoteConfig.
+     */
+    public static File overridesFile(Context context) {
+        return new File(context.getFilesDir(), OVERRIDES_FILE);
+    }
+
+    /**
+     * Raw value of a key, for settings without a typed field (plugin-specific keys).
+     */
+    public String getString(String key, String defaultValue) {
+        String value = source.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = source.get(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = source.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    // Comma-separated value as an unmodifiable list; an empty value means the defaults
+    private List<String> getList(String key, String... defaultValue) {
+        String value = source.get(key);
+        String[] items = value == null || value.trim().isEmpty() ? defaultValue : value.trim().split("\\s*,\\s*");
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+}
@@ -22,30 +22,22 @@ import android.app.Activity;
 import android.app.Notification;
 import android.app.NotificationManager;
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.net.Uri;
 import android.util.Log;
-import android.webkit.CookieManager;
 import android.webkit.ValueCallback;
 import android.webkit.WebView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-
-import dalvik.system.DexFile;
 
 /**
  * Configuration and utility class for Smart WebView.
- * This class now loads its configuration from 'assets/swv.properties'
- * and contains nested classes for handling configuration loading and app initialization.
+ * Its static fields mirror the current SWVConfig snapshot (built from 'assets/swv.properties')
+ * and it contains nested classes for app initialization.
  */
 public class SWVContext {
 
@@ -80,6 +72,21 @@ public class SWVContext {
     // Security
     public static boolean ASWP_CERT_VERI;
 
+    // Caching
+    public static boolean ASWP_CACHE;
+    public static int ASWV_CACHE_SIZE_MB;
+    public static String ASWV_CACHE_BUST;
+    public static boolean ASWP_PRECACHE;
+    public static String ASWV_PRECACHE_MANIFEST;
+    public static String ASWV_PRECACHE_STRATEGY;
+    public static boolean ASWP_PRECONNECT;
+    public static String[] ASWV_PRECONNECT_ORIGINS;
+    public static String ASWV_NAV_STRATEGY;
+    public static String[] ASWV_NAV_STRATEGY_PATHS;
+
+    // Downloads
+    public static boolean ASWP_DOWNLOAD_ENGINE;
+
     // UI & Theme
     public static int ASWV_ORIENTATION;
     public static int ASWV_LAYOUT;
@@ -107,13 +114,13 @@ public class SWVContext {
     public static String ASWV_URL;
     public static String ASWV_SHARE_URL;
     public static String ASWV_HOST;
+    public static UrlRouter ASWV_ROUTER;
     public static String CURR_URL;
     public static boolean ASWP_OFFLINE;
 
     // Shared UI components and state
     public static WebView asw_view;
     public static WebView print_view;
-    public static CookieManager cookie_manager;
     public static ProgressBar asw_progress;
     public static TextView asw_loading_text;
     public static NotificationManager asw_notification;
@@ -122,7 +129,7 @@ public class SWVContext {
     public static String asw_pcam_message;
     public static String asw_vcam_message;
     public static int asw_error_counter = 0;
-    public static boolean true_online = true;
+    public static volatile boolean true_online = true;
 
     // ===========================================
     // PLUGINS CONFIGURATION
@@ -141,119 +148,95 @@ public class SWVContext {
     private static final List<Runnable> onInitCallbacks = new ArrayList<>();
 
     /**
-     * Nested static class to handle loading the configuration file.
-     */
-    private static class ConfigLoader {
-        private static final String TAG = "SWV_ConfigLoader";
-        private static final String CONFIG_FILE = "swv.properties";
-        private final Properties properties;
-
-        private ConfigLoader(Context context) {
-            properties = new Properties();
-            AssetManager assetManager = context.getAssets();
-            try (InputStream inputStream = assetManager.open(CONFIG_FILE)) {
-                properties.load(inputStream);
-                Log.d(TAG, "Configuration loaded successfully from " + CONFIG_FILE);
-            } catch (IOException e) {
-                Log.e(TAG, "WARNING: Could not load swv.properties from assets. Using default values.", e);
-            }
-        }
-
-        public String getString(String key, String defaultValue) {
-            return properties.getProperty(key, defaultValue);
-        }
-
-        public boolean getBoolean(String key, boolean defaultValue) {
-            return Boolean.parseBoolean(properties.getProperty(key, Boolean.toString(defaultValue)));
-        }
-
-        public int getInt(String key, int defaultValue) {
-            try {
-                return Integer.parseInt(properties.getProperty(key, Integer.toString(defaultValue)));
-            } catch (NumberFormatException e) {
-                return defaultValue;
-            }
-        }
-
-        public String[] getStringArray(String key, String[] defaultValue) {
-            String value = properties.getProperty(key);
-            if (value == null || value.trim().isEmpty()) {
-                return defaultValue;
-            }
-            return value.split("\\s*,\\s*");
-        }
-    }
-
-    /**
-     * Central initialization method.
+     * Publishes the configuration, runtime overrides included, to the static fields. Runs in
+     * App.onCreate, so activities and the components started there all see the same values.
+     * The core classes read SWVConfig.get(); the fields remain for plugins written against them.
      */
     public static void loadConfig(Context context) {
-        ConfigLoader config = new ConfigLoader(context);
+        applyConfig(SWVConfig.loadOverrides(context));
+    }
 
+    // Mirrors a config snapshot into the static fields; main thread only
+    private static void applyConfig(SWVConfig config) {
         // Debug
-        SWV_DEBUGMODE = config.getBoolean("debug.mode", true);
+        SWV_DEBUGMODE = config.debugMode;
 
-        // URL Configuration (your web URL set here)
-        ASWV_APP_URL = config.getString("app.url", "https://aidashboardartstudio.netlify.app/");
-        ASWV_OFFLINE_URL = config.getString("offline.url", "file:///android_asset/web/offline.html");
-        ASWV_SEARCH = config.getString("search.url", "https://www.google.com/search?q=");
-        ASWV_SHARE_URL_SUFFIX = config.getString("share.url.suffix", "/?share=");
-        ASWV_EXC_LIST = config.getString("external.url.exception.list", "mgks.dev,docs.mgks.dev,mgks.github.io");
+        // URL Configuration
+        ASWV_APP_URL = config.appUrl;
+        ASWV_OFFLINE_URL = config.offlineUrl;
+        ASWV_SEARCH = config.searchUrl;
+        ASWV_SHARE_URL_SUFFIX = config.shareUrlSuffix;
+        ASWV_EXC_LIST = config.externalUrlExceptions;
 
         // Feature Flags
-        ASWP_FUPLOAD = config.getBoolean("feature.uploads", true);
-        ASWP_CAMUPLOAD = config.getBoolean("feature.camera.uploads", true);
-        ASWP_MULFILE = config.getBoolean("feature.multiple.uploads", true);
-        ASWP_COPYPASTE = config.getBoolean("feature.copy.paste", true);
-        ASWP_PULLFRESH = config.getBoolean("feature.pull.refresh", true);
-        ASWP_PBAR = config.getBoolean("feature.progress.bar", true);
-        ASWP_ZOOM = config.getBoolean("feature.zoom", false);
-        ASWP_SFORM = config.getBoolean("feature.save.form", false);
-        ASWP_EXTURL = config.getBoolean("feature.open.external.urls", true);
-        ASWP_TAB = config.getBoolean("feature.chrome.tabs", true);
-        ASWP_EXITDIAL = config.getBoolean("feature.exit.dialog", true);
+        ASWP_FUPLOAD = config.uploads;
+        ASWP_CAMUPLOAD = config.cameraUploads;
+        ASWP_MULFILE = config.multipleUploads;
+        ASWP_COPYPASTE = config.copyPaste;
+        ASWP_PULLFRESH = config.pullRefresh;
+        ASWP_PBAR = config.progressBar;
+        ASWP_ZOOM = config.zoom;
+        ASWP_SFORM = config.saveForm;
+        ASWP_EXTURL = config.openExternalUrls;
+        ASWP_TAB = config.chromeTabs;
+        ASWP_EXITDIAL = config.exitDialog;
 
         // Security
-        ASWP_CERT_VERI = config.getBoolean("security.verify.ssl", true);
+        ASWP_CERT_VERI = config.verifySsl;
+
+        // Caching
+        ASWP_CACHE = config.cacheEnabled;
+        ASWV_CACHE_SIZE_MB = config.cacheSizeMb;
+        ASWV_CACHE_BUST = config.cacheBustMode;
+        ASWP_PRECACHE = config.precacheEnabled;
+        ASWV_PRECACHE_MANIFEST = config.precacheManifest;
+        ASWV_PRECACHE_STRATEGY = config.precacheStrategy;
+        ASWP_PRECONNECT = config.preconnectEnabled;
+        ASWV_PRECONNECT_ORIGINS = config.preconnectOrigins.toArray(new String[0]);
+        ASWV_NAV_STRATEGY = config.navStrategy;
+        ASWV_NAV_STRATEGY_PATHS = config.navStrategyPaths.toArray(new String[0]);
+
+        // Downloads
+        ASWP_DOWNLOAD_ENGINE = config.downloadEngine;
 
         // UI & Theme
-        ASWV_ORIENTATION = config.getInt("ui.orientation", 0);
-        ASWV_LAYOUT = config.getInt("ui.layout", 1);
-        ASWP_DRAWER_HEADER = config.getBoolean("ui.drawer.header", true);
-        ASWP_EXTEND_SPLASH = config.getBoolean("ui.splash.extend", true);
+        ASWV_ORIENTATION = config.orientation;
+        ASWV_LAYOUT = config.layout;
+        ASWP_DRAWER_HEADER = config.drawerHeader;
+        ASWP_EXTEND_SPLASH = config.splashExtend;
 
         // User Agent
-        POSTFIX_USER_AGENT = config.getBoolean("agent.postfix.enabled", true);
-        USER_AGENT_POSTFIX = config.getString("agent.postfix.value", "SWVAndroid");
-        OVERRIDE_USER_AGENT = config.getBoolean("agent.override.enabled", false);
-        CUSTOM_USER_AGENT = config.getString("agent.override.value", "Mozilla/5.0 (Linux; Android 6.0; Nexus 5 Build/MRA58N) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/59.0.3071.115 Mobile Safari/537.36");
+        POSTFIX_USER_AGENT = config.userAgentPostfixEnabled;
+        USER_AGENT_POSTFIX = config.userAgentPostfix;
+        OVERRIDE_USER_AGENT = config.userAgentOverrideEnabled;
+        CUSTOM_USER_AGENT = config.userAgentOverride;
 
         // Analytics
-        ASWV_GTAG = config.getString("analytics.gtag.id", "G-7XXC1C7CRQ");
+        ASWV_GTAG = config.gtagId;
 
         // Plugins & Permissions
-        ASWP_ENABLED_PLUGINS = config.getStringArray("plugins.enabled", new String[]{
-                "AdMobPlugin", "JSInterfacePlugin", "ToastPlugin",
-                "QRScannerPlugin", "BiometricPlugin", "ImageCompressionPlugin"
-        });
-        SWV_PLAYGROUND = config.getBoolean("plugins.playground.enabled", true);
-        ASWP_REQUIRED_PERMISSIONS = config.getStringArray("permissions.on.launch", new String[]{"NOTIFICATIONS", "LOCATION"});
+        ASWP_ENABLED_PLUGINS = config.enabledPlugins.toArray(new String[0]);
+        SWV_PLAYGROUND = config.playground;
+        ASWP_REQUIRED_PERMISSIONS = config.requiredPermissions.toArray(new String[0]);
 
         // RatingsPlugin
-        ASWR_DAYS = config.getInt("rating.install.days", 3);
-        ASWR_TIMES = config.getInt("rating.launch.times", 10);
-        ASWR_INTERVAL = config.getInt("rating.remind.interval", 2);
+        ASWR_DAYS = config.ratingDays;
+        ASWR_TIMES = config.ratingTimes;
+        ASWR_INTERVAL = config.ratingInterval;
 
         // BiometricPlugin
-        ASWP_BIOMETRIC_ON_LAUNCH = config.getBoolean("biometric.trigger.launch", false);
+        ASWP_BIOMETRIC_ON_LAUNCH = config.biometricOnLaunch;
 
-        // Derived variables
-        ASWP_OFFLINE = ASWV_APP_URL.matches("^(file)://.*$") && !Functions.isInternetAvailable(context);
+        // Derived variables; ConnectivityMonitor answers from its cached snapshot
+        ASWP_OFFLINE = ASWV_APP_URL.startsWith("file://") && !ConnectivityMonitor.isOnline();
         ASWV_URL = ASWP_OFFLINE ? ASWV_OFFLINE_URL : ASWV_APP_URL;
         ASWV_SHARE_URL = ASWV_URL + ASWV_SHARE_URL_SUFFIX;
         ASWV_HOST = Functions.aswm_host(ASWV_URL);
-        CURR_URL = ASWV_URL;
-        true_online = !ASWP_OFFLINE;
+        ASWV_ROUTER = config.router;
+        if (CURR_URL == null) {
+            CURR_URL = ASWV_URL;
+        }
+        true_online = ConnectivityMonitor.isOnline();
     }
 
     /**
@@ -263,8 +246,21 @@ public class SWVContext {
         @Override
         public void onCreate() {
             super.onCreate();
+            long trace = StartupTracer.begin("App.onCreate");
+            ConnectivityMonitor.start(this);
+            long phase = StartupTracer.begin("loadConfig");
             SWVContext.loadConfig(this);
+            StartupTracer.end("loadConfig", phase);
             SWVContext.setAppContext(this);
+            WebViewProvider.prewarm(this);
+            MetaPull.prefetch(this);
+            Preconnector.start();
+            Precache.getInstance(this).updateAsync();
+            RemoteConfig.getInstance(this).fetchAsync();
+            if (SWVContext.ASWP_DOWNLOAD_ENGINE) {
+                DownloadEngine.getInstance(this).resumeAll();
+            }
+            StartupTracer.end("App.onCreate", trace);
         }
     }
 
@@ -303,32 +299,24 @@ public class SWVContext {
         }
     }
 
+    /**
+     * Loads the enabled plugins listed in 'plugins.enabled'. Plugin classes register themselves
+     * from their static initializers; PluginIndex is generated at build time, so only the enabled
+     * classes are touched instead of scanning the whole APK.
+     */
     public static void loadPlugins(Context context) {
-        Map<String, Boolean> enabledPlugins = new HashMap<>();
-        for (String pluginName : ASWP_ENABLED_PLUGINS) {
-            enabledPlugins.put(pluginName, true);
-        }
-
-        try {
-            String packageCodePath = context.getPackageCodePath();
-            DexFile df = new DexFile(packageCodePath);
-            String pluginPackageName = "mgks.os.swv.plugins";
-
-            for (Enumeration<String> iter = df.entries(); iter.hasMoreElements(); ) {
-                String className = iter.nextElement();
-                if (className.startsWith(pluginPackageName) && !className.contains("$")) {
-                    try {
-                        final Class<?> pluginClass = Class.forName(className);
-                        if (PluginInterface.class.isAssignableFrom(pluginClass)) {
-                            Log.d(TAG, "Plugin class loaded: " + pluginClass.getSimpleName());
-                        }
-                    } catch (ClassNotFoundException | NoClassDefFoundError e) {
-                        Log.e(TAG, "Could not load plugin class: " + className, e);
-                    }
-                }
+        for (String pluginName : SWVConfig.get().enabledPlugins) {
+            String className = PluginIndex.classFor(pluginName);
+            if (className == null) {
+                Log.w(TAG, "Plugin not bundled in this build: " + pluginName);
+                continue;
+            }
+            try {
+                Class.forName(className, true, context.getClassLoader());
+                Log.d(TAG, "Plugin class loaded: " + pluginName);
+            } catch (ClassNotFoundException | NoClassDefFoundError e) {
+                Log.e(TAG, "Could not load plugin class: " + className, e);
             }
-        } catch (IOException e) {
-            Log.e(TAG, "Error scanning for plugins", e);
         }
     }
 
@@ -0,0 +1,199 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Startup phase timings. Each phase is an android.os.Trace section (visible in Perfetto/systrace) and an entry
+ * in a fixed-size in-memory ring. When the first page has finished loading, the ring is written to
+ * filesDir/swv_trace/startup-&lt;time&gt;.trace as tab-separated lines, one file per launch, keeping the last
+ * MAX_FILES. Pull them with: adb shell run-as &lt;package&gt; cat files/swv_trace/&lt;file&gt;
+ */
+public final class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+    private static final String DIR = "swv_trace";
+    private static final int CAPACITY = 128;
+    private static final int MAX_FILES = 10;
+
+    // Ring of recorded phases; durations of -1 are instant marks
+    private static final String[] names = new String[CAPACITY];
+    private static final String[] threads = new String[CAPACITY];
+    private static final long[] starts = new long[CAPACITY];
+    private static final long[] durations = new long[CAPACITY];
+    private static int count = 0;
+    private static boolean finished = false;
+    private static final Map<String, Long> asyncStarts = new HashMap<>();
+
+    private StartupTracer() {}
+
+    /**
+     * Opens a phase on the calling thread. Pass the returned token to end() on the same thread.
+     */
+    public static long begin(String name) {
+        Trace.beginSection(name);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public static void end(String name, long token) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        Trace.endSection();
+        record(name, token, now - token);
+    }
+
+    /**
+     * Opens a phase that may end on another thread or in a later callback, such as a page load.
+     */
+    public static void beginAsync(String name) {
+        synchronized (asyncStarts) {
+            asyncStarts.put(name, SystemClock.elapsedRealtimeNanos());
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, 0);
+        }
+    }
+
+    public static void endAsync(String name) {
+        Long start;
+        synchronized (asyncStarts) {
+            start = asyncStarts.remove(name);
+        }
+        if (start == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, 0);
+        }
+        record(name, start, SystemClock.elapsedRealtimeNanos() - start);
+    }
+
+    /**
+     * Records a point in time, such as a deferred task starting.
+     */
+    public static void mark(String name) {
+        record(name, SystemClock.elapsedRealtimeNanos(), -1);
+    }
+
+    private static synchronized void record(String name, long start, long duration) {
+        if (finished) {
+            return;
+        }
+        int slot = count % CAPACITY;
+        names[slot] = name;
+        threads[slot] = Thread.currentThread().getName();
+        starts[slot] = start;
+        durations[slot] = duration;
+        count++;
+    }
+
+    /**
+     * Stops recording and writes the trace in the background. Only the first call has an effect.
+     */
+    public static void finish(Context context) {
+        final Context appContext = context.getApplicationContext();
+        final int total;
+        final String[] n, t;
+        final long[] s, d;
+        synchronized (StartupTracer.class) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            total = Math.min(count, CAPACITY);
+            n = names.clone();
+            t = threads.clone();
+            s = starts.clone();
+            d = durations.clone();
+        }
+        Thread writer = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                write(appContext, total, n, t, s, d);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write startup trace: " + e.getMessage());
+            }
+        }, "swv-trace");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void write(Context context, int total, String[] n, String[] t, long[] s, long[] d) throws IOException {
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(s[a], s[b]));
+        // Offsets from process start, so files from different launches line up
+        long origin = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime() * 1000000L
+                : (total > 0 ? s[order[0]] : 0);
+
+        MetaPull.AppProfile app = MetaPull.getAppProfile(context);
+        MetaPull.DeviceProfile device = MetaPull.getDeviceProfile();
+        StringBuilder out = new StringBuilder();
+        out.append("# swv startup trace v1\n");
+        out.append("# app=").append(app.versionName).append(" (").append(app.versionCode).append(") ").append(app.buildType)
+                .append(" device=").append(device.manufacturer).append(' ').append(device.model)
+                .append(" sdk=").append(device.sdk).append('\n');
+        out.append("# start_ms\tdur_ms\tthread\tphase\n");
+        for (int i : order) {
+            out.append(String.format(Locale.ROOT, "%.1f", (s[i] - origin) / 1e6)).append('\t')
+                    .append(d[i] < 0 ? "-" : String.format(Locale.ROOT, "%.1f", d[i] / 1e6)).append('\t')
+                    .append(t[i]).append('\t')
+                    .append(n[i]).append('\n');
+        }
+
+        File dir = new File(context.getFilesDir(), DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date());
+        File file = new File(dir, "startup-" + stamp + ".trace");
+        try (OutputStream stream = new FileOutputStream(file)) {
+            stream.write(out.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Log.i(TAG, "Startup trace written to " + file);
+
+        File[] traces = dir.listFiles((parent, name) -> name.endsWith(".trace"));
+        if (traces != null && traces.length > MAX_FILES) {
+            // Names sort by time
+            Arrays.sort(traces, (a, b) -> a.getName().compareTo(b.getName()));
+            for (int i = 0; i < traces.length - MAX_FILES; i++) {
+                traces[i].delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+/**
+ * Precompiled routing table used by Functions.url_actions.
+ * Built in SWVContext.applyConfig; lookups work on regions of the URL string,
+ * so routing a navigation never allocates and does not depend on the size of the exception list.
+ *
+ * Host rules: the app host (ASWV_HOST) matches exactly, while every entry of the
+ * external URL exception list matches itself and its subdomains, e.g. "mgks.dev"
+ * matches "docs.mgks.dev" but not "evilmgks.dev".
+ */
+public final class UrlRouter {
+
+    // Route actions
+    public static final int ROUTE_NONE = 0;
+    public static final int ROUTE_WEB = 1;
+    public static final int ROUTE_REFRESH = 2;
+    public static final int ROUTE_TEL = 3;
+    public static final int ROUTE_RATE = 4;
+    public static final int ROUTE_SHARE = 5;
+    public static final int ROUTE_EXIT = 6;
+    public static final int ROUTE_PRINT = 7;
+
+    // Host match modes
+    private static final int HOST_EXACT = 1;
+    private static final int HOST_WITH_SUBDOMAINS = 2;
+
+    private final RegionTable schemes;
+    private final RegionTable hosts;
+
+    private UrlRouter(RegionTable schemes, RegionTable hosts) {
+        this.schemes = schemes;
+        this.hosts = hosts;
+    }
+
+    /**
+     * Builds the table from the app host and the comma-separated external URL exception list.
+     */
+    public static UrlRouter build(String appHost, String exceptionList) {
+        RegionTable schemes = new RegionTable(16);
+        schemes.put("http", ROUTE_WEB);
+        schemes.put("https", ROUTE_WEB);
+        schemes.put("refresh", ROUTE_REFRESH);
+        schemes.put("tel", ROUTE_TEL);
+        schemes.put("rate", ROUTE_RATE);
+        schemes.put("share", ROUTE_SHARE);
+        schemes.put("exit", ROUTE_EXIT);
+        schemes.put("print", ROUTE_PRINT);
+
+        String[] entries = exceptionList == null ? new String[0] : exceptionList.split(",");
+        RegionTable hosts = new RegionTable(entries.length + 1);
+        for (String entry : entries) {
+            String host = entry.trim();
+            while (host.startsWith("*.") || host.startsWith(".")) {
+                host = host.substring(host.indexOf('.') + 1);
+            }
+            if (!host.isEmpty()) {
+                hosts.put(host, HOST_WITH_SUBDOMAINS);
+            }
+        }
+        if (appHost != null && !appHost.isEmpty() && hosts.get(appHost, 0, appHost.length()) == RegionTable.MISSING) {
+            hosts.put(appHost, HOST_EXACT);
+        }
+        return new UrlRouter(schemes, hosts);
+    }
+
+    /**
+     * Returns the ROUTE_* action for the URL's scheme, or ROUTE_NONE for schemes handled by the system.
+     */
+    public int route(String url) {
+        if (url == null) {
+            return ROUTE_NONE;
+        }
+        int colon = url.indexOf(':');
+        if (colon <= 0) {
+            return ROUTE_NONE;
+        }
+        int action = schemes.get(url, 0, colon);
+        return action == RegionTable.MISSING ? ROUTE_NONE : action;
+    }
+
+    /**
+     * True if the URL's host is the app host or covered by the exception list,
+     * i.e. the link should stay inside the app's WebView.
+     */
+    public boolean isInternal(String url) {
+        if (url == null) {
+            return false;
+        }
+        int start = url.indexOf("//");
+        start = start < 0 ? 0 : start + 2;
+        int end = url.length();
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '/' || c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) {
+            start = at + 1;
+        }
+        for (int i = start; i < end; i++) {
+            if (url.charAt(i) == ':') {
+                end = i;
+                break;
+            }
+        }
+        if (end > start && url.charAt(end - 1) == '.') {
+            end--; // trailing root dot
+        }
+        return isInternalHost(url, start, end);
+    }
+
+    /**
+     * Host check on a region of a string: walks the label boundaries right to left,
+     * hashing every suffix in a single pass and probing the table once per label.
+     */
+    boolean isInternalHost(CharSequence s, int start, int end) {
+        if (end <= start) {
+            return false;
+        }
+        int hash = 0;
+        int power = 1;
+        for (int i = end - 1; i >= start; i--) {
+            hash += RegionTable.lower(s.charAt(i)) * power;
+            power *= 31;
+            if (i == start || s.charAt(i - 1) == '.') {
+                int mode = hosts.get(s, i, end, hash);
+                if (mode == HOST_WITH_SUBDOMAINS || (mode == HOST_EXACT && i == start)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open-addressing table of lower-cased string keys to int values, probed with string regions.
+     * The hash is the polynomial String.hashCode() of the lower-cased key, so suffix hashes can be
+     * accumulated right to left by the caller.
+     */
+    static final class RegionTable {
+        static final int MISSING = -1;
+
+        private final String[] keys;
+        private final int[] hashes;
+        private final int[] values;
+        private final int mask;
+
+        RegionTable(int expected) {
+            int capacity = 4;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            keys = new String[capacity];
+            hashes = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(String key, int value) {
+            char[] chars = key.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = lower(chars[i]);
+            }
+            String lowered = new String(chars);
+            int hash = hash(lowered, 0, lowered.length());
+            int slot = spread(hash) & mask;
+            while (keys[slot] != null && !(hashes[slot] == hash && keys[slot].equals(lowered))) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = lowered;
+            hashes[slot] = hash;
+            values[slot] = value;
+        }
+
+        int get(CharSequence s, int start, int end) {
+            return get(s, start, end, hash(s, start, end));
+        }
+
+        int get(CharSequence s, int start, int end, int hash) {
+            int slot = spread(hash) & mask;
+            String key;
+            while ((key = keys[slot]) != null) {
+                if (hashes[slot] == hash && regionEquals(key, s, start, end)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return MISSING;
+        }
+
+        static int hash(CharSequence s, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + lower(s.charAt(i));
+            }
+            return hash;
+        }
+
+        static char lower(char c) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+
+        private static boolean regionEquals(String key, CharSequence s, int start, int end) {
+            if (key.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length(); i++) {
+                if (key.charAt(i) != lower(s.charAt(start + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+
+/**
+ * Creates the app's WebViews. The WebView provider is loaded on a background thread while the
+ * Application starts, and one preconfigured WebView is built on the main thread's first idle moment
+ * unless an activity has already taken one, so MainActivity started after that moment takes a ready
+ * instance instead of inflating one on its critical path.
+ * WebViews are built on a MutableContextWrapper, which lets a pooled instance move to the activity.
+ */
+public final class WebViewProvider {
+
+    private static final String TAG = "WebViewProvider";
+
+    // Main thread only
+    private static WebView pooled;
+    private static boolean warming = false;
+    // Set once an activity has taken a WebView; a cold start usually gets there before the first idle
+    private static boolean obtained = false;
+
+    private WebViewProvider() {}
+
+    /**
+     * Starts loading the WebView provider off the main thread and queues creation of a pooled
+     * instance for when the main thread is idle. Call from Application.onCreate, on the main thread.
+     */
+    public static void prewarm(Context context) {
+        final Context appContext = context.getApplicationContext();
+        if (warming) {
+            return;
+        }
+        warming = true;
+        new Thread(() -> {
+            long start = SystemClock.elapsedRealtime();
+            try {
+                // Loads the provider's code and native library; cheap once done
+                WebSettings.getDefaultUserAgent(appContext);
+                Log.d(TAG, "WebView provider loaded in " + (SystemClock.elapsedRealtime() - start) + "ms");
+            } catch (RuntimeException e) {
+                // No WebView installed or it is being updated; MainActivity will report it
+                Log.w(TAG, "WebView provider warmup failed: " + e.getMessage());
+            }
+        }, "swv-webview-warmup").start();
+
+        Looper.myQueue().addIdleHandler(() -> {
+            // The activity built its own view; a second one would only hold memory
+            if (pooled == null && !obtained) {
+                try {
+                    pooled = create(appContext);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not prebuild a WebView: " + e.getMessage());
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Returns the pooled WebView rebound to the given context, or a newly built one if the pool is empty.
+     * Main thread only.
+     */
+    public static WebView obtain(Context context) {
+        obtained = true;
+        WebView webView = pooled;
+        pooled = null;
+        if (webView == null) {
+            return create(context);
+        }
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(context);
+        return webView;
+    }
+
+    /**
+     * Builds a WebView with the app's settings applied. Used directly for secondary views such as printing.
+     */
+    public static WebView create(Context context) {
+        WebView webView = new WebView(new MutableContextWrapper(context));
+        configure(webView);
+        return webView;
+    }
+
+    /**
+     * Puts the WebView in place of a layout placeholder, keeping its id, layout params and visibility.
+     */
+    public static WebView replace(View placeholder, WebView webView) {
+        ViewGroup parent = (ViewGroup) placeholder.getParent();
+        int index = parent.indexOfChild(placeholder);
+        webView.setId(placeholder.getId());
+        webView.setVisibility(placeholder.getVisibility());
+        parent.removeViewAt(index);
+        parent.addView(webView, index, placeholder.getLayoutParams());
+        return webView;
+    }
+
+    /**
+     * Detaches and destroys a WebView, dropping its reference to the activity first.
+     */
+    public static void release(WebView webView) {
+        if (webView == null) {
+            return;
+        }
+        if (webView.getParent() instanceof ViewGroup) {
+            ((ViewGroup) webView.getParent()).removeView(webView);
+        }
+        if (webView.getContext() instanceof MutableContextWrapper) {
+            ((MutableContextWrapper) webView.getContext()).setBaseContext(webView.getContext().getApplicationContext());
+        }
+        webView.destroy();
+    }
+
+    // Settings that don't depend on the activity
+    private static void configure(WebView webView) {
+        WebSettings webSettings = webView.getSettings();
+        SWVConfig config = SWVConfig.get();
+
+        // Configure user agent
+        if (config.userAgentOverrideEnabled || config.userAgentPostfixEnabled) {
+            String userAgent = webSettings.getUserAgentString();
+            if (config.userAgentOverrideEnabled) {
+                userAgent = config.userAgentOverride;
+            }
+            if (config.userAgentPostfixEnabled) {
+                userAgent = userAgent + " " + config.userAgentPostfix;
+            }
+            webSettings.setUserAgentString(userAgent);
+        }
+
+        // WARNING: setJavaScriptEnabled can introduce XSS vulnerabilities.
+        // Ensure you are loading only trusted content (your own website) and
+        // that you have sanitized any user-submitted content on your server.
+        webSettings.setJavaScriptEnabled(true);
+        webSettings.setSaveFormData(config.saveForm);
+        webSettings.setSupportZoom(config.zoom);
+        webSettings.setAllowFileAccess(true);
+        webSettings.setAllowFileAccessFromFileURLs(true);
+        webSettings.setAllowUniversalAccessFromFileURLs(true);
+        webSettings.setUseWideViewPort(true);
+        webSettings.setDomStorageEnabled(true);
+        webSettings.setMixedContentMode(WebSettings.MIXED_CONTENT_ALWAYS_ALLOW);
+
+        webView.setHapticFeedbackEnabled(false);
+        webView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        webView.setVerticalScrollBarEnabled(false);
+    }
+}
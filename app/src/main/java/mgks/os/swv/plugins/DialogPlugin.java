@@ -18,6 +18,7 @@ package mgks.os.swv.plugins;
   1. From JavaScript, call `window.Dialog.show(options, callback)`.
   2. The `options` object can contain `title`, `message`, `positiveText`, etc.
   3. The `callback` function receives the result ('positive', 'negative', 'neutral', 'cancel').
+     `show` also returns a Promise that resolves with the same value.
 
   // Example JavaScript:
   window.Dialog.show({
@@ -39,11 +40,11 @@ import android.content.Intent;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
-import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 
 import androidx.annotation.NonNull;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -51,6 +52,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import mgks.os.swv.Functions;
+import mgks.os.swv.MessageBus;
 import mgks.os.swv.PluginInterface;
 import mgks.os.swv.PluginManager;
 
@@ -68,100 +70,96 @@ public class DialogPlugin implements PluginInterface {
     public void initialize(Activity activity, WebView webView, Functions functions, Map<String, Object> config) {
         this.activity = activity;
         this.webView = webView;
-        webView.addJavascriptInterface(new DialogJSInterface(), "DialogInterface");
         Log.d(TAG, "DialogPlugin initialized.");
     }
 
     public void showDialog(String optionsJson) {
-        if (activity == null || activity.isFinishing()) return;
-
         try {
-            JSONObject options = new JSONObject(optionsJson);
-            String title = options.optString("title", "Alert");
-            String message = options.optString("message", "");
-            String positiveText = options.optString("positiveText", "OK");
-            String negativeText = options.optString("negativeText", null);
-            String neutralText = options.optString("neutralText", null);
-            final String callbackId = options.optString("callbackId", null);
+            showDialog(new JSONObject(optionsJson), null);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error parsing dialog options JSON", e);
+        }
+    }
+
+    /**
+     * Shows a native dialog; the reply (if any) resolves with 'positive', 'negative', 'neutral' or 'cancel'.
+     */
+    public void showDialog(JSONObject options, MessageBus.Reply reply) {
+        if (!PluginManager.ensureActive(this) || activity == null || activity.isFinishing()) {
+            if (reply != null) reply.reject("Dialog unavailable");
+            return;
+        }
 
+        String title = options.optString("title", "Alert");
+        String message = options.optString("message", "");
+        String positiveText = options.optString("positiveText", "OK");
+        String negativeText = options.optString("negativeText", null);
+        String neutralText = options.optString("neutralText", null);
+
+        // Options are read on the calling (worker) thread; only the dialog itself is built on main
+        mainHandler.post(() -> {
+            if (activity == null || activity.isFinishing()) {
+                if (reply != null) reply.reject("Dialog unavailable");
+                return;
+            }
             AlertDialog.Builder builder = new AlertDialog.Builder(activity);
             builder.setTitle(title);
             builder.setMessage(message);
 
-            builder.setPositiveButton(positiveText, (dialog, which) -> {
-                if (callbackId != null) {
-                    triggerCallback(callbackId, "positive");
-                }
-            });
+            builder.setPositiveButton(positiveText, (dialog, which) -> complete(reply, "positive"));
 
             if (negativeText != null) {
-                builder.setNegativeButton(negativeText, (dialog, which) -> {
-                    if (callbackId != null) {
-                        triggerCallback(callbackId, "negative");
-                    }
-                });
+                builder.setNegativeButton(negativeText, (dialog, which) -> complete(reply, "negative"));
             }
 
             if (neutralText != null) {
-                builder.setNeutralButton(neutralText, (dialog, which) -> {
-                    if (callbackId != null) {
-                        triggerCallback(callbackId, "neutral");
-                    }
-                });
+                builder.setNeutralButton(neutralText, (dialog, which) -> complete(reply, "neutral"));
             }
 
-            builder.setOnCancelListener(dialog -> {
-                if (callbackId != null) {
-                    triggerCallback(callbackId, "cancel");
-                }
-            });
-
-            mainHandler.post(() -> builder.create().show());
-
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing dialog options JSON", e);
-        }
+            builder.setOnCancelListener(dialog -> complete(reply, "cancel"));
+            // Dismissed without a button, e.g. the activity went away; the reply only settles once
+            builder.setOnDismissListener(dialog -> complete(reply, "cancel"));
+            builder.create().show();
+        });
     }
 
-    private void triggerCallback(String callbackId, String result) {
-        String script = String.format("if(window.Dialog && window.Dialog.handleCallback) { window.Dialog.handleCallback('%s', '%s'); }", callbackId, result);
-        evaluateJavascript(script);
+    private void complete(MessageBus.Reply reply, String result) {
+        if (reply != null) {
+            reply.resolve(result);
+        }
     }
 
-    public class DialogJSInterface {
-        @JavascriptInterface
-        public void show(String optionsJson) {
-            DialogPlugin.this.showDialog(optionsJson);
+    @Override
+    public void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+        if (!"show".equals(method)) {
+            reply.reject("Unsupported method: " + method);
+            return;
         }
+        JSONObject options = args.optJSONObject(0);
+        showDialog(options != null ? options : new JSONObject(), reply);
     }
 
     @Override
-    public void onPageFinished(String url) {
-        // Inject JS helper
-        String js =
+    public String getBootstrapScript() {
+        return
                 "if(!window.Dialog){" +
-                        "  window.Dialog = {" +
-                        "    callbacks: {}," +
-                        "    show: function(options, callback) {" +
-                        "      var callbackId = 'dialogCallback_' + Date.now();" +
-                        "      if (callback) this.callbacks[callbackId] = callback;" +
-                        "      options.callbackId = callbackId;" +
-                        "      if(window.DialogInterface) window.DialogInterface.show(JSON.stringify(options));" +
-                        "    }," +
-                        "    handleCallback: function(callbackId, result) {" +
-                        "      if (this.callbacks[callbackId]) {" +
-                        "        this.callbacks[callbackId](result);" +
-                        "        delete this.callbacks[callbackId];" +
-                        "      }" +
-                        "    }" +
-                        "  };" +
-                        "  console.log('Dialog JS interface ready.');" +
-                        "}";
-        evaluateJavascript(js);
+                "  window.Dialog = {" +
+                "    show: function(options, callback) {" +
+                "      var result = SWV.call('Dialog', 'show', [options || {}]);" +
+                "      if (callback) result.then(callback, function() { callback('cancel'); });" +
+                "      return result;" +
+                "    }" +
+                "  };" +
+                "  console.log('Dialog JS interface ready.');" +
+                "}";
     }
 
     // --- Standard Plugin Interface Methods ---
     @Override public String getPluginName() { return "DialogPlugin"; }
+    @Override public boolean isLazy() { return true; }
+    @Override public int getHooks() { return 0; }
+    @Override public String getJsNamespace() { return "Dialog"; }
+    @Override public void onPageFinished(String url) {}
     @Override public void onActivityResult(int r, int c, Intent d) {}
     @Override public void onRequestPermissionsResult(int r, @NonNull String[] p, @NonNull int[] g) {}
     @Override public boolean shouldOverrideUrlLoading(WebView v, String u) { return false; }
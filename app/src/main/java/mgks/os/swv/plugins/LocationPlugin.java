@@ -12,16 +12,19 @@ package mgks.os.swv.plugins;
   - Fetches location using both GPS and Network providers.
   - Provides a clean JavaScript interface for on-demand location requests.
   - Handles runtime permission requests.
-  - Includes a legacy cookie-based method for backward compatibility.
+  - Includes a legacy cookie-based method for backward compatibility: with `location.cookies`
+    on, a fix is taken once after the first page load (and after the permission is granted)
+    to set the `lat`/`long` cookies.
   - Automatically stops listening for updates to conserve battery.
 
   USAGE:
   1. Enable the `ASWP_LOCATION` flag in SWVContext.java.
-  2. From JavaScript, call `window.Location.getCurrentPosition(callback)`.
-  3. The callback function will receive `(latitude, longitude, error)`.
+  2. From JavaScript, call `window.SWVLocation.getCurrentPosition(callback)`.
+  3. The callback function will receive `(latitude, longitude, error)`; the call also returns
+     a Promise resolving to `{ lat, lng }`.
 
   // Example JavaScript:
-  window.Location.getCurrentPosition(function(lat, lng, error) {
+  window.SWVLocation.getCurrentPosition(function(lat, lng, error) {
     if (error) {
       console.error("Location Error:", error);
       return;
@@ -31,7 +34,6 @@ package mgks.os.swv.plugins;
 */
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
@@ -43,18 +45,26 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
-import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import mgks.os.swv.Functions;
+import mgks.os.swv.MessageBus;
 import mgks.os.swv.PermissionManager;
+import mgks.os.swv.PluginExecutor;
 import mgks.os.swv.PluginInterface;
 import mgks.os.swv.PluginManager;
+import mgks.os.swv.SWVConfig;
 import mgks.os.swv.SWVContext;
 
 public class LocationPlugin implements PluginInterface, LocationListener {
@@ -67,8 +77,16 @@ public class LocationPlugin implements PluginInterface, LocationListener {
 
     private static final long MIN_TIME_BW_UPDATES = 1000 * 60; // 1 minute
     private static final float MIN_DISTANCE_CHANGE_FOR_UPDATES = 10; // 10 meters
+    private static final long FIX_TIMEOUT_MS = 30 * 1000;
 
-    private String pendingJsCallback = null;
+    // Bus calls waiting for a fix or for the permission prompt; all of them get the same result.
+    // Main thread only, like the location callbacks and the permission result.
+    private final List<MessageBus.Reply> pendingReplies = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable fixTimeout = () -> sendLocationError("Timed out waiting for a location fix.");
+    private boolean permissionRequested = false;
+    // Fix taken for the lat/long cookies alone, so it happens once per activation
+    private boolean cookiesFetched = false;
 
     static {
         PluginManager.registerPlugin(new LocationPlugin(), new HashMap<>());
@@ -82,19 +100,47 @@ public class LocationPlugin implements PluginInterface, LocationListener {
         this.permissionManager = new PermissionManager(activity);
         this.locationManager = (LocationManager) activity.getSystemService(Context.LOCATION_SERVICE);
 
-        webView.addJavascriptInterface(new LocationJSInterface(), "LocationInterface");
+        // First activation is deferred to the first page load, so the cookie fix no longer delays startup
+        if (permissionManager.isLocationPermissionGranted()) {
+            fetchForCookies();
+        }
         Log.d(TAG, "LocationPlugin initialized.");
+    }
 
-        // Optionally fetch location on launch if permissions are already granted
-        if (permissionManager.isLocationPermissionGranted()) {
-            getLocation(null); // Fetch once for cookie setting on launch
+    private static boolean cookiesEnabled() {
+        return SWVConfig.get().getBoolean("location.cookies", true);
+    }
+
+    // Fix for the lat/long cookies when no page request is waiting
+    private void fetchForCookies() {
+        if (cookiesEnabled() && !cookiesFetched && pendingReplies.isEmpty()) {
+            cookiesFetched = true;
+            requestFix();
         }
     }
 
-    public void getLocation(String jsCallbackName) {
-        pendingJsCallback = jsCallbackName;
+    public void getLocation(MessageBus.Reply reply) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            PluginExecutor.runOnMain(() -> getLocation(reply));
+            return;
+        }
+        if (!PluginManager.ensureActive(this)) {
+            reply.reject("Location unavailable");
+            return;
+        }
+        pendingReplies.add(reply);
+        if (pendingReplies.size() == 1 && !permissionRequested) {
+            requestFix();
+        }
+    }
+
+    private void requestFix() {
         if (!permissionManager.isLocationPermissionGranted()) {
-            permissionManager.requestInitialPermissions(); // Rely on MainActivity's handling
+            // The answer comes back through onRequestPermissionsResult
+            permissionRequested = permissionManager.requestLocationPermission();
+            if (!permissionRequested) {
+                sendLocationError("Location permission unavailable.");
+            }
             return;
         }
 
@@ -131,6 +177,8 @@ public class LocationPlugin implements PluginInterface, LocationListener {
             } else {
                 // If getLastKnownLocation fails, we rely on requestLocationUpdates to call onLocationChanged later.
                 Log.d(TAG, "Last known location not available, waiting for updates...");
+                handler.removeCallbacks(fixTimeout);
+                handler.postDelayed(fixTimeout, FIX_TIMEOUT_MS);
             }
 
         } catch (Exception e) {
@@ -149,10 +197,19 @@ public class LocationPlugin implements PluginInterface, LocationListener {
             functions.set_cookie("long=" + longitude);
         }
 
-        // 2. Send via JS Callback if requested
-        if (pendingJsCallback != null) {
-            sendLocationToJs(pendingJsCallback, location, null);
-            pendingJsCallback = null;
+        // 2. Resolve waiting bus calls
+        if (!pendingReplies.isEmpty()) {
+            JSONObject result = new JSONObject();
+            try {
+                result.put("lat", latitude);
+                result.put("lng", longitude);
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not encode location", e);
+            }
+            for (MessageBus.Reply reply : pendingReplies) {
+                reply.resolve(result);
+            }
+            pendingReplies.clear();
         }
 
         // Stop listening after getting a fix if only requested once
@@ -160,12 +217,15 @@ public class LocationPlugin implements PluginInterface, LocationListener {
     }
 
     private void sendLocationError(String message) {
-        sendLocationToJs(pendingJsCallback, null, message);
-        pendingJsCallback = null;
+        for (MessageBus.Reply reply : pendingReplies) {
+            reply.reject(message);
+        }
+        pendingReplies.clear();
         stopListening();
     }
 
     private void stopListening() {
+        handler.removeCallbacks(fixTimeout);
         if (locationManager != null) {
             locationManager.removeUpdates(this);
         }
@@ -184,85 +244,80 @@ public class LocationPlugin implements PluginInterface, LocationListener {
     @Override
     public void onProviderDisabled(@NonNull String provider) {}
 
-    // --- JavaScript Interface ---
-    public class LocationJSInterface {
-        @JavascriptInterface
-        public void getCurrentPosition(String callbackId) { // Now receives a callback ID
-            new Handler(Looper.getMainLooper()).post(() -> getLocation(callbackId));
+    // --- Message Bus ---
+    @Override
+    public void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+        if ("getCurrentPosition".equals(method)) {
+            // Location and permission state are owned by the main thread
+            PluginExecutor.runOnMain(() -> getLocation(reply));
+        } else {
+            reply.reject("Unsupported method: " + method);
         }
     }
 
     // --- Plugin Interface Methods ---
     @Override
-    public void onPageFinished(String url) {
-        String js =
+    public String getBootstrapScript() {
+        return
                 "if (!window.SWVLocation) {" + // Renamed to SWVLocation
-                        "  window.SWVLocation = {" +
-                        "    _callbacks: {}," +
-                        "    getCurrentPosition: function(callback) {" +
-                        "      var callbackId = 'loc_cb_' + Date.now() + Math.random();" +
-                        "      this._callbacks[callbackId] = callback;" +
-                        "      if (window.LocationInterface) {" +
-                        "        window.LocationInterface.getCurrentPosition(callbackId);" +
-                        "      }" +
-                        "    }," +
-                        "    _handleCallback: function(callbackId, lat, lng, error) {" +
-                        "      if (this._callbacks[callbackId]) {" +
-                        "        this._callbacks[callbackId](lat, lng, error);" +
-                        "        delete this._callbacks[callbackId];" +
-                        "      }" +
-                        "    }" +
-                        "  };" +
-                        "  console.log('SWVLocation JS interface ready.');" +
-                        "}";
-        evaluateJavascript(js);
-    }
-
-    @SuppressLint("DefaultLocale")
-    private void sendLocationToJs(String callbackId, Location location, String errorMessage) {
-        if (callbackId == null) return;
-
-        String script;
-        if (location != null) {
-            script = String.format("javascript:window.SWVLocation._handleCallback('%s', %f, %f, null);",
-                    callbackId, location.getLatitude(), location.getLongitude());
-        } else {
-            script = String.format("javascript:window.SWVLocation._handleCallback('%s', null, null, '%s');",
-                    callbackId, errorMessage);
-        }
-        evaluateJavascript(script);
+                "  window.SWVLocation = {" +
+                "    getCurrentPosition: function(callback) {" +
+                "      var result = SWV.call('Location', 'getCurrentPosition', []);" +
+                "      if (callback) result.then(function(p) { callback(p.lat, p.lng, null); }," +
+                "        function(e) { callback(null, null, e.message); });" +
+                "      return result;" +
+                "    }" +
+                "  };" +
+                "  console.log('SWVLocation JS interface ready.');" +
+                "}";
     }
 
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
-        if (requestCode == PermissionManager.INITIAL_REQUEST_CODE) {
+        if (requestCode == PermissionManager.LOCATION_REQUEST_CODE || requestCode == PermissionManager.INITIAL_REQUEST_CODE) {
+            if (requestCode == PermissionManager.LOCATION_REQUEST_CODE) {
+                permissionRequested = false;
+            }
+            boolean locationAsked = requestCode == PermissionManager.LOCATION_REQUEST_CODE;
             boolean locationGranted = false;
-            for (int i = 0; i < permissions.length; i++) {
-                if (permissions[i].equals(Manifest.permission.ACCESS_FINE_LOCATION) && grantResults[i] == PackageManager.PERMISSION_GRANTED) {
-                    locationGranted = true;
-                    break;
+            // An interrupted prompt comes back with empty arrays; that counts as denied
+            for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+                if (permissions[i].equals(Manifest.permission.ACCESS_FINE_LOCATION)) {
+                    locationAsked = true;
+                    locationGranted = grantResults[i] == PackageManager.PERMISSION_GRANTED;
                 }
             }
+            if (!locationAsked || permissionRequested) {
+                // Not about location, or the launch prompt answered while ours is still open
+                return;
+            }
 
             if (locationGranted) {
                 // If a JS request was waiting for permission, fulfill it now
-                if (pendingJsCallback != null) {
-                    getLocation(pendingJsCallback);
+                if (!pendingReplies.isEmpty()) {
+                    requestFix();
                 } else {
-                    getLocation(null); // Fetch for cookies if no JS request was pending
+                    fetchForCookies();
                 }
-            } else if (pendingJsCallback != null) {
+            } else if (!pendingReplies.isEmpty()) {
                 sendLocationError("Location permission denied.");
             }
         }
     }
 
     @Override public String getPluginName() { return "LocationPlugin"; }
+    @Override public boolean isLazy() { return true; }
+    @Override public int getHooks() {
+        // The page-finished hook only serves to activate the plugin for the cookie fix
+        return cookiesEnabled() ? HOOK_PERMISSIONS_RESULT | HOOK_PAGE_FINISHED : HOOK_PERMISSIONS_RESULT;
+    }
+    @Override public String getJsNamespace() { return "Location"; }
+    @Override public void onPageFinished(String url) {}
     @Override public void onActivityResult(int r, int c, Intent d) {}
     @Override public boolean shouldOverrideUrlLoading(WebView v, String u) { return false; }
     @Override public void onResume() {}
     @Override public void onPageStarted(String url) {}
-    @Override public void onDestroy() { stopListening(); }
+    @Override public void onDestroy() { sendLocationError("Activity destroyed"); }
     @Override public void evaluateJavascript(String script) {
         if (webView != null) webView.evaluateJavascript(script, null);
     }
@@ -0,0 +1,432 @@
+package mgks.os.swv.plugins;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.app.Activity;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+import mgks.os.swv.ConnectivityMonitor;
+import mgks.os.swv.Functions;
+import mgks.os.swv.MessageBus;
+import mgks.os.swv.MetaPull;
+import mgks.os.swv.PluginInterface;
+import mgks.os.swv.PluginManager;
+import mgks.os.swv.SWVConfig;
+
+/**
+ * Page-load telemetry. A document-start script reads Navigation Timing, paint, LCP, layout shift and
+ * Resource Timing entries after each navigation and reports them over the bus. Values are folded into
+ * histograms per URL pattern and metric; every metrics.batch.size page views the histograms are written
+ * to filesDir/swv_metrics as one batch file and, if metrics.upload.url is set, POSTed there.
+ */
+public class MetricsPlugin implements PluginInterface {
+
+    private static final String TAG = "MetricsPlugin";
+    private static final String DIR = "swv_metrics";
+    private static final int MAX_FILES = 50;
+    private static final int MAX_RESOURCES = 300;
+    private static final int TIMEOUT = 15000;
+
+    // Histogram bucket upper bounds in ms; the last bucket takes everything above
+    private static final long[] BOUNDS = {50, 100, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 8000};
+    // Path segments that identify a record rather than a page: numbers, long hex ids, UUIDs
+    private static final Pattern ID_SEGMENT = Pattern.compile("\\d+|[0-9a-fA-F]{8,}|[0-9a-fA-F-]{36}");
+
+    private Context context;
+    private List<String> patterns;
+    private int batchSize;
+    private String uploadUrl;
+    private boolean unmeteredOnly;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // pattern -> metric -> histogram; guarded by this
+    private Map<String, Map<String, Histogram>> histograms = new HashMap<>();
+    private int pageViews = 0;
+    private long batchStart = System.currentTimeMillis();
+
+    static {
+        PluginManager.registerPlugin(new MetricsPlugin(), new HashMap<>());
+    }
+
+    @Override
+    public void initialize(Activity activity, WebView webView, Functions functions, Map<String, Object> config) {
+        this.context = activity.getApplicationContext();
+        SWVConfig swvConfig = SWVConfig.get();
+        String list = swvConfig.getString("metrics.url.patterns", "").trim();
+        this.patterns = list.isEmpty() ? Collections.<String>emptyList() : Arrays.asList(list.split("\\s*,\\s*"));
+        this.batchSize = Math.max(1, swvConfig.getInt("metrics.batch.size", 20));
+        this.uploadUrl = swvConfig.getString("metrics.upload.url", "").trim();
+        this.unmeteredOnly = swvConfig.getBoolean("metrics.upload.unmetered.only", true);
+        Log.d(TAG, "MetricsPlugin initialized");
+    }
+
+    @Override
+    public String getPluginName() {
+        return "MetricsPlugin";
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int getHooks() {
+        // Woken up by the first report
+        return 0;
+    }
+
+    @Override
+    public String getJsNamespace() {
+        return "Metrics";
+    }
+
+    @Override
+    public void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+        if (!"report".equals(method)) {
+            reply.reject("Unsupported method: " + method);
+            return;
+        }
+        JSONObject report = args.optJSONObject(0);
+        if (report == null) {
+            reply.reject("Missing report");
+            return;
+        }
+        boolean full = record(report);
+        reply.resolve(null);
+        if (full) {
+            worker.execute(this::persistAndUpload);
+        }
+    }
+
+    @Override
+    public String getBootstrapScript() {
+        return "if (!window.__swvMetrics && window.PerformanceObserver && performance.getEntriesByType) {\n" +
+                "  window.__swvMetrics = true;\n" +
+                "  (function() {\n" +
+                "    var lcp = 0, cls = 0, sent = false;\n" +
+                "    try { new PerformanceObserver(function(list) { var e = list.getEntries(); if (e.length) lcp = e[e.length - 1].startTime; }).observe({ type: 'largest-contentful-paint', buffered: true }); } catch (e) {}\n" +
+                "    try { new PerformanceObserver(function(list) { list.getEntries().forEach(function(e) { if (!e.hadRecentInput) cls += e.value; }); }).observe({ type: 'layout-shift', buffered: true }); } catch (e) {}\n" +
+                "    function report() {\n" +
+                "      var nav = performance.getEntriesByType('navigation')[0];\n" +
+                "      if (sent || !nav) return;\n" +
+                "      sent = true;\n" +
+                "      var paint = {};\n" +
+                "      performance.getEntriesByType('paint').forEach(function(e) { paint[e.name] = e.startTime; });\n" +
+                "      var resources = performance.getEntriesByType('resource').slice(0, " + MAX_RESOURCES + ").map(function(e) { return [e.initiatorType, e.duration]; });\n" +
+                "      SWV.call('Metrics', 'report', [{ url: location.href, ttfb: nav.responseStart, dcl: nav.domContentLoadedEventEnd,\n" +
+                "        load: nav.loadEventEnd, fcp: paint['first-contentful-paint'], lcp: lcp || undefined, cls: cls, resources: resources }]).catch(function() {});\n" +
+                "    }\n" +
+                "    addEventListener('visibilitychange', function() { if (document.visibilityState === 'hidden') report(); });\n" +
+                "    addEventListener('pagehide', report);\n" +
+                "    // LCP settles once the page is loaded and quiet\n" +
+                "    function onLoad() { setTimeout(report, 3000); }\n" +
+                "    if (document.readyState === 'complete') { onLoad(); } else { addEventListener('load', onLoad); }\n" +
+                "  })();\n" +
+                "}\n";
+    }
+
+    // Returns true when the batch is full
+    private synchronized boolean record(JSONObject report) {
+        String pattern = patternFor(report.optString("url"));
+        Map<String, Histogram> metrics = histograms.get(pattern);
+        if (metrics == null) {
+            metrics = new HashMap<>();
+            histograms.put(pattern, metrics);
+        }
+        for (String metric : new String[]{"ttfb", "dcl", "load", "fcp", "lcp"}) {
+            double value = report.optDouble(metric, Double.NaN);
+            if (!Double.isNaN(value) && value > 0) {
+                add(metrics, metric, (long) value);
+            }
+        }
+        double cls = report.optDouble("cls", Double.NaN);
+        if (!Double.isNaN(cls)) {
+            // Kept in thousandths so it fits the same buckets
+            add(metrics, "cls_x1000", Math.round(cls * 1000));
+        }
+        JSONArray resources = report.optJSONArray("resources");
+        if (resources != null) {
+            for (int i = 0; i < resources.length(); i++) {
+                JSONArray entry = resources.optJSONArray(i);
+                if (entry != null) {
+                    add(metrics, "resource." + entry.optString(0, "other"), (long) entry.optDouble(1, 0));
+                }
+            }
+        }
+        return ++pageViews >= batchSize;
+    }
+
+    private static void add(Map<String, Histogram> metrics, String metric, long value) {
+        Histogram histogram = metrics.get(metric);
+        if (histogram == null) {
+            histogram = new Histogram();
+            metrics.put(metric, histogram);
+        }
+        histogram.add(value);
+    }
+
+    /**
+     * Groups a URL under the first configured pattern it starts with (host and path, "*" matches one
+     * segment), or under its path with id-like segments replaced by ":id".
+     */
+    String patternFor(String url) {
+        Uri uri = Uri.parse(url);
+        String host = uri.getHost() != null ? uri.getHost() : "";
+        String path = uri.getPath() != null && !uri.getPath().isEmpty() ? uri.getPath() : "/";
+        String target = host + path;
+        for (String pattern : patterns) {
+            if (matches(pattern, target) || matches(pattern, path)) {
+                return pattern;
+            }
+        }
+        String[] segments = path.split("/", -1);
+        StringBuilder normalized = new StringBuilder(host);
+        for (int i = 1; i < segments.length; i++) {
+            normalized.append('/').append(ID_SEGMENT.matcher(segments[i]).matches() ? ":id" : segments[i]);
+        }
+        return segments.length > 1 ? normalized.toString() : host + "/";
+    }
+
+    private static boolean matches(String pattern, String target) {
+        String[] want = pattern.split("/", -1);
+        String[] have = target.split("/", -1);
+        if (have.length < want.length) {
+            return false;
+        }
+        for (int i = 0; i < want.length; i++) {
+            if (!"*".equals(want[i]) && !want[i].equals(have[i]) && !(i == want.length - 1 && want[i].isEmpty())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void persistAndUpload() {
+        Context ctx = context;
+        if (ctx == null) {
+            return;
+        }
+        try {
+            persist(ctx);
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Could not save metrics batch: " + e.getMessage());
+        }
+        if (!uploadUrl.isEmpty() && ConnectivityMonitor.isOnline() && !(unmeteredOnly && ConnectivityMonitor.isMetered())) {
+            upload(ctx);
+        }
+    }
+
+    private void persist(Context ctx) throws IOException, JSONException {
+        Map<String, Map<String, Histogram>> batch;
+        int views;
+        long start;
+        synchronized (this) {
+            if (pageViews == 0) {
+                return;
+            }
+            batch = histograms;
+            views = pageViews;
+            start = batchStart;
+            histograms = new HashMap<>();
+            pageViews = 0;
+            batchStart = System.currentTimeMillis();
+        }
+
+        JSONObject pages = new JSONObject();
+        for (Map.Entry<String, Map<String, Histogram>> page : batch.entrySet()) {
+            JSONObject metrics = new JSONObject();
+            for (Map.Entry<String, Histogram> metric : page.getValue().entrySet()) {
+                metrics.put(metric.getKey(), metric.getValue().toJson());
+            }
+            pages.put(page.getKey(), metrics);
+        }
+        JSONObject json = new JSONObject();
+        json.put("from", start);
+        json.put("to", System.currentTimeMillis());
+        json.put("pageViews", views);
+        json.put("bounds", new JSONArray(BOUNDS));
+        json.put("app", MetaPull.getAppProfile(ctx).toJson());
+        json.put("device", MetaPull.getDeviceProfile().toJson());
+        json.put("pages", pages);
+
+        File dir = new File(ctx.getFilesDir(), DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File tmp = new File(dir, "batch.tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (!tmp.renameTo(new File(dir, "batch-" + System.currentTimeMillis() + ".json"))) {
+            throw new IOException("Cannot store batch");
+        }
+
+        File[] files = batchFiles(dir);
+        for (int i = 0; i < files.length - MAX_FILES; i++) {
+            files[i].delete();
+        }
+    }
+
+    // Oldest first; a failed upload leaves the rest for next time
+    private void upload(Context ctx) {
+        for (File file : batchFiles(new File(ctx.getFilesDir(), DIR))) {
+            HttpURLConnection connection = null;
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] body = new byte[(int) file.length()];
+                int offset = 0;
+                while (offset < body.length) {
+                    int read = in.read(body, offset, body.length - offset);
+                    if (read < 0) break;
+                    offset += read;
+                }
+                connection = (HttpURLConnection) new URL(uploadUrl).openConnection();
+                connection.setConnectTimeout(TIMEOUT);
+                connection.setReadTimeout(TIMEOUT);
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(offset);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body, 0, offset);
+                }
+                int status = connection.getResponseCode();
+                if (status / 100 != 2) {
+                    Log.w(TAG, "Metrics upload returned HTTP " + status);
+                    return;
+                }
+                file.delete();
+            } catch (IOException e) {
+                Log.w(TAG, "Metrics upload failed: " + e.getMessage());
+                return;
+            } finally {
+                if (connection != null) connection.disconnect();
+            }
+        }
+    }
+
+    private static File[] batchFiles(File dir) {
+        File[] files = dir.listFiles((parent, name) -> name.startsWith("batch-") && name.endsWith(".json"));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+        return files;
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, android.content.Intent data) {
+        // Not used in this plugin
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        // Not used in this plugin
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return false;
+    }
+
+    @Override
+    public void onPageStarted(String url) {
+        // Not used in this plugin
+    }
+
+    @Override
+    public void onPageFinished(String url) {
+        // Reports come from the page script
+    }
+
+    @Override public void onResume() {}
+
+    @Override
+    public void onDestroy() {
+        // Keep what was collected so far
+        worker.execute(this::persistAndUpload);
+    }
+
+    @Override
+    public void evaluateJavascript(String script) {
+        // Not used in this plugin
+    }
+
+    private static final class Histogram {
+        final long[] buckets = new long[BOUNDS.length + 1];
+        long count;
+        long sum;
+        long max;
+
+        void add(long value) {
+            int i = 0;
+            while (i < BOUNDS.length && value > BOUNDS[i]) {
+                i++;
+            }
+            buckets[i]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("count", count);
+            json.put("sum", sum);
+            json.put("max", max);
+            json.put("buckets", new JSONArray(buckets));
+            return json;
+        }
+    }
+}
@@ -180,6 +180,9 @@ public class RatingPlugin implements PluginInterface {
 
     // --- Standard Plugin Interface Methods ---
     @Override public String getPluginName() { return "RatingPlugin"; }
+    // Initialized after the first page load, keeping the preference I/O off the startup path
+    @Override public boolean isLazy() { return true; }
+    @Override public int getHooks() { return HOOK_PAGE_FINISHED; }
     @Override public void onActivityResult(int requestCode, int resultCode, Intent data) {}
     @Override public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {}
     @Override public boolean shouldOverrideUrlLoading(WebView view, String url) { return false; }
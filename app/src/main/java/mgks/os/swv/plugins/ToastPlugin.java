@@ -15,23 +15,25 @@ package mgks.os.swv.plugins;
   USAGE:
   1. Get the plugin instance: ToastPlugin plugin = (ToastPlugin) SmartWebView.getPluginManager().getPluginInstance("ToastPlugin");
   2. Show a toast: plugin.showToast("Hello World!");
-  3. From JavaScript: window.ToastInterface.showToast("Hello from JavaScript!");
+  3. From JavaScript: window.Toast.show("Hello from JavaScript!"); or SWV.call("Toast", "show", ["Hello"]);
 */
 
 import android.app.Activity;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
-import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import org.json.JSONArray;
+
 import java.util.HashMap;
 import java.util.Map;
 
 import mgks.os.swv.Functions;
+import mgks.os.swv.MessageBus;
 import mgks.os.swv.PluginInterface;
 import mgks.os.swv.PluginManager;
 // Removed R import as it's not directly used for findViewById anymore for the webview.
@@ -64,14 +66,6 @@ public class ToastPlugin implements PluginInterface {
             }
         }
 
-        // Add JavaScript interface
-        // Ensure webView is not null before adding JavascriptInterface, though it should be guaranteed by PluginManager
-        if (this.webView != null) {
-            this.webView.addJavascriptInterface(new ToastJSInterface(), "ToastInterface");
-        } else {
-            Log.e(TAG, "WebView is null during ToastPlugin initialization. JS Interface not added.");
-        }
-
         Log.d(TAG, "ToastPlugin initialized with config: " + config);
     }
 
@@ -80,6 +74,38 @@ public class ToastPlugin implements PluginInterface {
         return "ToastPlugin";
     }
 
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public int getHooks() {
+        // Only woken up by JS or native calls
+        return 0;
+    }
+
+    @Override
+    public String getJsNamespace() {
+        return "Toast";
+    }
+
+    @Override
+    public void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+        switch (method) {
+            case "show":
+                showToast(args.optString(0));
+                reply.resolve(null);
+                break;
+            case "showLong":
+                showToast(args.optString(0), Toast.LENGTH_LONG);
+                reply.resolve(null);
+                break;
+            default:
+                reply.reject("Unsupported method: " + method);
+        }
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, android.content.Intent data) {
         // Not used in this plugin
@@ -104,21 +130,18 @@ public class ToastPlugin implements PluginInterface {
 
     @Override
     public void onPageFinished(String url) {
-        // Inject Toast-related JavaScript
-        injectToastSupportJs();
+        // Not used in this plugin, the helper script is injected by PluginManager
     }
 
-    private void injectToastSupportJs() {
-        String toastSupportJs =
-                "if (!window.Toast) {\n" +
-                        "    window.Toast = {\n" +
-                        "        show: function(message) { return window.ToastInterface.showToast(message); },\n" +
-                        "        showLong: function(message) { return window.ToastInterface.showLongToast(message); }\n" +
-                        "    };\n" +
-                        "    console.log('Toast JavaScript interface initialized');\n" +
-                        "}\n";
-
-        evaluateJavascript(toastSupportJs);
+    @Override
+    public String getBootstrapScript() {
+        return "if (!window.Toast) {\n" +
+                "    window.Toast = {\n" +
+                "        show: function(message) { return SWV.call('Toast', 'show', [message]); },\n" +
+                "        showLong: function(message) { return SWV.call('Toast', 'showLong', [message]); }\n" +
+                "    };\n" +
+                "    console.log('Toast JavaScript interface initialized');\n" +
+                "}\n";
     }
 
     @Override public void onResume() {}
@@ -159,24 +182,11 @@ public class ToastPlugin implements PluginInterface {
      * @param duration The duration (Toast.LENGTH_SHORT or Toast.LENGTH_LONG)
      */
     public void showToast(String message, int duration) {
+        if (!PluginManager.ensureActive(this)) {
+            return;
+        }
         if (activity != null && !activity.isFinishing()) {
             mainHandler.post(() -> Toast.makeText(activity, message, duration).show());
         }
     }
-
-    /**
-     * JavaScript interface for displaying toasts from web content
-     */
-    public class ToastJSInterface {
-
-        @JavascriptInterface
-        public void showToast(String message) {
-            ToastPlugin.this.showToast(message);
-        }
-
-        @JavascriptInterface
-        public void showLongToast(String message) {
-            ToastPlugin.this.showToast(message, Toast.LENGTH_LONG);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package mgks.os.swv.plugins;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+
+/**
+ * The tus 1.0 requests UploadPlugin makes, without Android types: creation, PATCH, the HEAD offset
+ * check, concatenation discovery and termination. Kept apart so they can be exercised against a local
+ * server in plain JVM tests.
+ */
+final class UploadIO {
+
+    static final String TUS_VERSION = "1.0.0";
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 60000;
+
+    private UploadIO() {}
+
+    static final class HttpException extends IOException {
+        final int status;
+
+        HttpException(int status) {
+            super("HTTP " + status);
+            this.status = status;
+        }
+
+        // Client errors other than timeouts, offset conflicts and rate limits won't go away by retrying
+        boolean isPermanent() {
+            return status >= 400 && status < 500 && status != 408 && status != 409 && status != 429;
+        }
+    }
+
+    /**
+     * The server no longer knows the upload (404 or 410); it has to be created again.
+     */
+    static final class ExpiredException extends IOException {
+        ExpiredException() {
+            super("Upload expired on the server");
+        }
+    }
+
+    static HttpURLConnection open(String url, String method, JSONObject headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setUseCaches(false);
+        // Upload URLs from a redirect would skip the endpoint check
+        connection.setInstanceFollowRedirects(false);
+        if ("PATCH".equals(method)) {
+            // HttpURLConnection rejects PATCH; tus defines this override for such clients
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("X-HTTP-Method-Override", "PATCH");
+        } else {
+            connection.setRequestMethod(method);
+        }
+        connection.setRequestProperty("Tus-Resumable", TUS_VERSION);
+        if (headers != null) {
+            Iterator<String> names = headers.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                connection.setRequestProperty(name, headers.optString(name));
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * True if an OPTIONS request lists the concatenation extension.
+     */
+    static boolean supportsConcatenation(String endpoint, JSONObject headers) throws IOException {
+        HttpURLConnection connection = open(endpoint, "OPTIONS", headers);
+        try {
+            String extensions = connection.getResponseCode() / 100 == 2 ? connection.getHeaderField("Tus-Extension") : null;
+            return extensions != null && extensions.contains("concatenation");
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * POST creation request. length is -1 for a final concatenation, which has no Upload-Length;
+     * concat and metadata are left out when null.
+     * @return the absolute URL of the new upload
+     */
+    static String create(String endpoint, long length, String concat, String metadata, JSONObject headers) throws IOException {
+        HttpURLConnection connection = open(endpoint, "POST", headers);
+        try {
+            if (length >= 0) {
+                connection.setRequestProperty("Upload-Length", Long.toString(length));
+            }
+            if (concat != null) {
+                connection.setRequestProperty("Upload-Concat", concat);
+            }
+            if (metadata != null && !metadata.isEmpty()) {
+                connection.setRequestProperty("Upload-Metadata", metadata);
+            }
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(0);
+            connection.getOutputStream().close();
+            int status = connection.getResponseCode();
+            String location = connection.getHeaderField("Location");
+            if (status != HttpURLConnection.HTTP_CREATED || location == null) {
+                throw new HttpException(status);
+            }
+            return new URL(new URL(endpoint), location).toString();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * HEAD request for how many bytes the server holds.
+     */
+    static long offset(String url, JSONObject headers) throws IOException {
+        HttpURLConnection connection = open(url, "HEAD", headers);
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE) {
+                throw new ExpiredException();
+            }
+            if (status / 100 != 2) {
+                throw new HttpException(status);
+            }
+            return parseOffset(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Sends length bytes of the channel from position as one PATCH at offset. The body is streamed
+     * through buffer, so only the buffer is in memory.
+     * @return the server's new offset, or -1 on 409 when the server holds a different offset
+     */
+    static long patch(String url, long offset, FileChannel channel, long position, long length,
+                      ByteBuffer buffer, JSONObject headers) throws IOException {
+        HttpURLConnection connection = open(url, "PATCH", headers);
+        try {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            connection.setRequestProperty("Upload-Offset", Long.toString(offset));
+            connection.setRequestProperty("Content-Type", "application/offset+octet-stream");
+            try (OutputStream out = connection.getOutputStream()) {
+                long left = length;
+                while (left > 0) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), left));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("File is shorter than when the upload started");
+                    }
+                    out.write(buffer.array(), 0, read);
+                    position += read;
+                    left -= read;
+                }
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_CONFLICT) {
+                return -1;
+            }
+            if (status / 100 != 2) {
+                throw new HttpException(status);
+            }
+            return parseOffset(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * tus termination extension; servers without it simply expire the upload.
+     */
+    static void delete(String url, JSONObject headers) throws IOException {
+        HttpURLConnection connection = open(url, "DELETE", headers);
+        try {
+            connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static long parseOffset(HttpURLConnection connection) throws IOException {
+        try {
+            return Long.parseLong(connection.getHeaderField("Upload-Offset"));
+        } catch (NumberFormatException e) {
+            throw new IOException("Missing Upload-Offset");
+        }
+    }
+}
@@ -0,0 +1,853 @@
+package mgks.os.swv.plugins;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import android.app.Activity;
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.UriPermission;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.OpenableColumns;
+import android.util.AtomicFile;
+import android.util.Base64;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mgks.os.swv.ConnectivityMonitor;
+import mgks.os.swv.FileProcessing;
+import mgks.os.swv.Functions;
+import mgks.os.swv.MessageBus;
+import mgks.os.swv.PluginExecutor;
+import mgks.os.swv.PluginInterface;
+import mgks.os.swv.PluginManager;
+import mgks.os.swv.SWVConfig;
+import mgks.os.swv.SWVContext;
+import mgks.os.swv.UrlRouter;
+
+/**
+ * Resumable uploads over the tus 1.0 protocol (https://tus.io/protocols/resumable-upload).
+ * Files are sent in upload.chunk.size.mb PATCH requests. If the server supports the concatenation
+ * extension, a file is split into up to upload.parallel partial uploads sent side by side and joined
+ * with a final POST. Part URLs and offsets are kept in filesDir/swv_uploads/&lt;id&gt;.json after every
+ * chunk. Uploads continue when the network returns and after process death; at most one chunk per
+ * part is ever re-sent.
+ *
+ * Page API (namespace "Upload"):
+ *   pick({accept, multiple}) -> [{file, name, size, type}], images already downscaled by FileProcessing;
+ *     file is an opaque id for the picked document
+ *   start({file, endpoint, headers, metadata}) -> id; file is an id from pick or a content:// URI pick
+ *     granted, endpoint must be on the app host or a host in upload.endpoints
+ *   cancel(id), list()
+ * Events: 'upload-progress' [{id, sent, total}] batched for all uploads, 'upload-complete' {id, url},
+ * 'upload-failed' {id, error}.
+ */
+public class UploadPlugin implements PluginInterface {
+
+    private static final String TAG = "UploadPlugin";
+    private static final String DIR = "swv_uploads";
+    // Re-encoded images a pending upload reads, out of reach of FileProcessing's cache sweep
+    private static final String COPIES = "copies";
+    private static final int PICK_REQUEST_CODE = 7301;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private static final String STATUS_QUEUED = "queued";
+    private static final String STATUS_RUNNING = "running";
+    private static final String STATUS_FAILED = "failed";
+
+    private Activity activity;
+    private Context context;
+    private File root;
+    private long chunkSize;
+    private int parallel;
+    private int maxRetries;
+    private UrlRouter endpoints;
+
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    // Ids handed to the page by pick; start only reads documents the user chose
+    private final Map<String, Uri> picked = new ConcurrentHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "swv-upload-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ConnectivityMonitor.Listener networkListener = snapshot -> {
+        if (snapshot.online) {
+            resumeQueued();
+        }
+    };
+    private MessageBus.Reply pickReply;
+    private boolean progressScheduled = false;
+
+    static {
+        PluginManager.registerPlugin(new UploadPlugin(), new HashMap<>());
+    }
+
+    @Override
+    public void initialize(Activity activity, WebView webView, Functions functions, Map<String, Object> config) {
+        this.activity = activity;
+        this.context = activity.getApplicationContext();
+        this.root = new File(context.getFilesDir(), DIR);
+        SWVConfig swvConfig = SWVConfig.get();
+        this.chunkSize = Math.max(1, swvConfig.getInt("upload.chunk.size.mb", 5)) * 1024L * 1024L;
+        this.parallel = Math.max(1, swvConfig.getInt("upload.parallel", 3));
+        this.maxRetries = swvConfig.getInt("upload.max.retries", 5);
+        this.endpoints = UrlRouter.build(swvConfig.host, swvConfig.getString("upload.endpoints", ""));
+        ConnectivityMonitor.addListener(networkListener);
+        // Uploads interrupted by process death continue from their last acknowledged chunk
+        pool.execute(this::loadAll);
+        Log.d(TAG, "UploadPlugin initialized");
+    }
+
+    @Override
+    public String getPluginName() {
+        return "UploadPlugin";
+    }
+
+    @Override
+    public int getHooks() {
+        return HOOK_ACTIVITY_RESULT;
+    }
+
+    @Override
+    public String getJsNamespace() {
+        return "Upload";
+    }
+
+    @Override
+    public void onMessage(String method, JSONArray args, MessageBus.Reply reply) {
+        switch (method) {
+            case "pick":
+                pick(args.optJSONObject(0), reply);
+                break;
+            case "start":
+                JSONObject options = args.optJSONObject(0);
+                if (options == null || options.optString("file").isEmpty() || options.optString("endpoint").isEmpty()) {
+                    reply.reject("start needs file and endpoint");
+                    return;
+                }
+                Uri uri = resolvePicked(options.optString("file"));
+                if (uri == null) {
+                    reply.reject("file must come from Upload.pick");
+                    return;
+                }
+                if (!isAllowedUrl(options.optString("endpoint"))) {
+                    reply.reject("endpoint is not on an allowed host");
+                    return;
+                }
+                try {
+                    reply.resolve(enqueue(uri, options));
+                } catch (IOException | JSONException e) {
+                    reply.reject(e.getMessage());
+                }
+                break;
+            case "cancel":
+                cancel(args.optString(0));
+                reply.resolve(null);
+                break;
+            case "list":
+                reply.resolve(list());
+                break;
+            default:
+                reply.reject("Unsupported method: " + method);
+        }
+    }
+
+    // Opens the document picker; the reply is settled in onActivityResult
+    private void pick(JSONObject options, MessageBus.Reply reply) {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        String accept = options != null ? options.optString("accept").trim() : "";
+        if (!accept.isEmpty()) {
+            intent.putExtra(Intent.EXTRA_MIME_TYPES, accept.split("\\s*,\\s*"));
+        }
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, options != null && options.optBoolean("multiple"));
+        // Persistable grants let an upload resume after process death
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_PERSISTABLE_URI_PERMISSION);
+        PluginExecutor.runOnMain(() -> {
+            if (pickReply != null) {
+                reply.reject("busy");
+                return;
+            }
+            pickReply = reply;
+            activity.startActivityForResult(intent, PICK_REQUEST_CODE);
+        });
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode != PICK_REQUEST_CODE || pickReply == null) {
+            return;
+        }
+        MessageBus.Reply reply = pickReply;
+        pickReply = null;
+        List<Uri> chosen = new ArrayList<>();
+        if (resultCode == Activity.RESULT_OK && data != null) {
+            ClipData clip = data.getClipData();
+            if (clip != null) {
+                for (int i = 0; i < clip.getItemCount(); i++) {
+                    chosen.add(clip.getItemAt(i).getUri());
+                }
+            } else if (data.getData() != null) {
+                chosen.add(data.getData());
+            }
+        }
+        ContentResolver resolver = context.getContentResolver();
+        for (Uri uri : chosen) {
+            try {
+                resolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            } catch (SecurityException e) {
+                Log.w(TAG, "No persistable permission for " + uri + "; it can't resume after a restart");
+            }
+        }
+        // Same pre-upload stage as the WebView file chooser
+        FileProcessing.process_uploads(activity, chosen.toArray(new Uri[0]), results -> pool.execute(() -> {
+            JSONArray files = new JSONArray();
+            for (Uri uri : results) {
+                try {
+                    String id = UUID.randomUUID().toString();
+                    files.put(new JSONObject()
+                            .put("file", id)
+                            .put("name", displayName(uri))
+                            .put("size", size(uri))
+                            .put("type", type(uri)));
+                    picked.put(id, uri);
+                } catch (IOException | JSONException e) {
+                    Log.w(TAG, "Skipping unreadable file " + uri + ": " + e.getMessage());
+                }
+            }
+            reply.resolve(files);
+        }));
+    }
+
+    // An id from pick, or a content:// URI pick was granted, possibly before a restart; null otherwise
+    private Uri resolvePicked(String file) {
+        Uri uri = picked.get(file);
+        if (uri != null) {
+            return uri;
+        }
+        uri = Uri.parse(file);
+        if (!"content".equals(uri.getScheme())) {
+            return null;
+        }
+        if (picked.containsValue(uri)) {
+            return uri;
+        }
+        for (UriPermission permission : context.getContentResolver().getPersistedUriPermissions()) {
+            if (permission.isReadPermission() && permission.getUri().equals(uri)) {
+                return uri;
+            }
+        }
+        return null;
+    }
+
+    // Endpoints and the upload URLs servers return stay on the app host or a host in upload.endpoints
+    private boolean isAllowedUrl(String url) {
+        String scheme = Uri.parse(url).getScheme();
+        return ("https".equalsIgnoreCase(scheme) || "http".equalsIgnoreCase(scheme)) && endpoints.isInternal(url);
+    }
+
+    private String enqueue(Uri uri, JSONObject options) throws IOException, JSONException {
+        Upload upload = new Upload(Long.toString(System.currentTimeMillis(), 36) + Integer.toString((int) (Math.random() * 46656), 36));
+        upload.endpoint = options.getString("endpoint");
+        upload.size = size(uri);
+        upload.headers = options.optJSONObject("headers") != null ? options.getJSONObject("headers") : new JSONObject();
+        upload.metadata = options.optJSONObject("metadata") != null ? options.getJSONObject("metadata") : new JSONObject();
+        if (!upload.metadata.has("filename")) {
+            upload.metadata.put("filename", displayName(uri));
+        }
+        if (!upload.metadata.has("filetype") && type(uri) != null) {
+            upload.metadata.put("filetype", type(uri));
+        }
+        upload.file = "file".equals(uri.getScheme()) ? Uri.fromFile(keepCopy(upload, processedFile(uri))).toString() : uri.toString();
+        save(upload);
+        uploads.put(upload.id, upload);
+        start(upload);
+        return upload.id;
+    }
+
+    private void loadAll() {
+        File[] files = root.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try {
+                Upload upload = Upload.fromJson(new JSONObject(new String(new AtomicFile(file).readFully(), StandardCharsets.UTF_8)));
+                if (!isAllowedUrl(upload.endpoint)) {
+                    // upload.endpoints no longer lists the host
+                    Log.w(TAG, "Dropping upload " + upload.id + " to a host that is no longer allowed");
+                    discard(upload);
+                    continue;
+                }
+                if (uploads.putIfAbsent(upload.id, upload) == null) {
+                    start(upload);
+                }
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Dropping unreadable upload state " + file.getName());
+                file.delete();
+            }
+        }
+    }
+
+    private void resumeQueued() {
+        for (Upload upload : uploads.values()) {
+            start(upload);
+        }
+    }
+
+    private void cancel(String id) {
+        Upload upload = uploads.remove(id);
+        if (upload == null) {
+            return;
+        }
+        synchronized (upload) {
+            upload.status = STATUS_FAILED;
+            upload.generation++;
+        }
+        pool.execute(() -> {
+            discard(upload);
+            for (Part part : upload.parts) {
+                if (part.url != null) {
+                    try {
+                        UploadIO.delete(part.url, upload.headers);
+                    } catch (IOException ignored) {
+                        // Best effort
+                    }
+                }
+            }
+        });
+    }
+
+    private JSONArray list() {
+        JSONArray list = new JSONArray();
+        for (Upload upload : uploads.values()) {
+            try {
+                list.put(new JSONObject()
+                        .put("id", upload.id)
+                        .put("file", upload.file)
+                        .put("status", upload.status)
+                        .put("sent", upload.sent())
+                        .put("total", upload.size));
+            } catch (JSONException e) {
+                Log.w(TAG, "Could not describe upload " + upload.id);
+            }
+        }
+        return list;
+    }
+
+    private void start(Upload upload) {
+        final int generation;
+        synchronized (upload) {
+            if (!STATUS_QUEUED.equals(upload.status) || !ConnectivityMonitor.isOnline()) {
+                return;
+            }
+            upload.status = STATUS_RUNNING;
+            generation = ++upload.generation;
+        }
+        pool.execute(() -> {
+            try {
+                if (upload.parts.isEmpty()) {
+                    createParts(upload);
+                    save(upload);
+                }
+                List<Part> pending = new ArrayList<>();
+                for (Part part : upload.parts) {
+                    if (part.url == null || part.offset < part.length) {
+                        pending.add(part);
+                    }
+                }
+                upload.remaining.set(pending.size());
+                if (pending.isEmpty()) {
+                    finish(upload, generation);
+                    return;
+                }
+                for (Part part : pending) {
+                    pool.execute(() -> runPart(upload, part, generation));
+                }
+            } catch (IOException e) {
+                handleError(upload, generation, e);
+            }
+        });
+    }
+
+    // Splits the file into partial uploads when the server can concatenate them, otherwise one upload
+    private void createParts(Upload upload) throws IOException {
+        int count = (int) Math.max(1, Math.min(parallel, (upload.size + chunkSize - 1) / chunkSize));
+        if (count > 1 && !UploadIO.supportsConcatenation(upload.endpoint, upload.headers)) {
+            count = 1;
+        }
+        long size = upload.size / count;
+        for (int i = 0; i < count; i++) {
+            Part part = new Part();
+            part.start = i * size;
+            part.length = i == count - 1 ? upload.size - part.start : size;
+            part.partial = count > 1;
+            upload.parts.add(part);
+        }
+        Log.d(TAG, "Upload " + upload.id + ": " + upload.size + " bytes in " + count + " part(s)");
+    }
+
+    private void runPart(Upload upload, Part part, int generation) {
+        int attempts = 0;
+        while (upload.isActive(generation)) {
+            try {
+                sendPart(upload, part, generation);
+                if (upload.remaining.decrementAndGet() == 0) {
+                    finish(upload, generation);
+                }
+                return;
+            } catch (IOException e) {
+                if (!ConnectivityMonitor.isOnline() || (e instanceof UploadIO.HttpException && ((UploadIO.HttpException) e).isPermanent()) || ++attempts > maxRetries) {
+                    handleError(upload, generation, e);
+                    return;
+                }
+                Log.w(TAG, "Part of " + upload.id + " failed, retrying: " + e.getMessage());
+                SystemClock.sleep(Math.min(30000, 1000L << (attempts - 1)));
+            }
+        }
+    }
+
+    private void sendPart(Upload upload, Part part, int generation) throws IOException {
+        if (part.url == null) {
+            part.url = create(upload, part.length, part.partial ? "partial" : null, part.partial ? null : metadata(upload));
+            part.offset = 0;
+            save(upload);
+        } else {
+            // The server's offset wins; a chunk may have landed after our last save, or not at all
+            syncOffset(upload, part);
+        }
+        try (ParcelFileDescriptor descriptor = openFile(upload);
+             FileChannel channel = new FileInputStream(descriptor.getFileDescriptor()).getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (part.offset < part.length) {
+                if (!upload.isActive(generation)) {
+                    throw new IOException("Stopped");
+                }
+                long length = Math.min(chunkSize, part.length - part.offset);
+                long offset = UploadIO.patch(part.url, part.offset, channel, part.start + part.offset, length, buffer, upload.headers);
+                if (offset < 0) {
+                    // Offset mismatch, e.g. a retried chunk that did arrive; ask again
+                    syncOffset(upload, part);
+                    continue;
+                }
+                part.offset = offset;
+                save(upload);
+                progress();
+            }
+        }
+    }
+
+    // Creation request; the returned upload URL has to pass the same host check as the endpoint
+    private String create(Upload upload, long length, String concat, String metadata) throws IOException {
+        String url = UploadIO.create(upload.endpoint, length, concat, metadata, upload.headers);
+        if (!isAllowedUrl(url)) {
+            throw new IOException("Server returned an upload URL on another host");
+        }
+        return url;
+    }
+
+    private void syncOffset(Upload upload, Part part) throws IOException {
+        try {
+            part.offset = UploadIO.offset(part.url, upload.headers);
+        } catch (UploadIO.ExpiredException e) {
+            // This part starts over
+            part.url = null;
+            throw e;
+        }
+    }
+
+    private void finish(Upload upload, int generation) {
+        try {
+            if (upload.parts.size() > 1 && upload.finalUrl == null) {
+                StringBuilder concat = new StringBuilder("final;");
+                for (int i = 0; i < upload.parts.size(); i++) {
+                    concat.append(i > 0 ? " " : "").append(upload.parts.get(i).url);
+                }
+                upload.finalUrl = create(upload, -1, concat.toString(), metadata(upload));
+            } else if (upload.finalUrl == null) {
+                upload.finalUrl = upload.parts.get(0).url;
+            }
+        } catch (IOException e) {
+            handleError(upload, generation, e);
+            return;
+        }
+        uploads.remove(upload.id);
+        discard(upload);
+        Log.i(TAG, "Upload " + upload.id + " complete: " + upload.finalUrl);
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", upload.id);
+        data.put("url", upload.finalUrl);
+        emit("upload-complete", data);
+    }
+
+    private void handleError(Upload upload, int generation, Exception e) {
+        boolean offline = !ConnectivityMonitor.isOnline() && !(e instanceof UploadIO.HttpException);
+        synchronized (upload) {
+            if (!upload.isActive(generation)) {
+                return;
+            }
+            // Only one part reports; the others stop on the status change
+            upload.status = offline ? STATUS_QUEUED : STATUS_FAILED;
+            upload.generation++;
+        }
+        if (offline) {
+            Log.i(TAG, "Upload " + upload.id + " waiting for the network");
+            return;
+        }
+        Log.w(TAG, "Upload " + upload.id + " failed: " + e.getMessage());
+        uploads.remove(upload.id);
+        discard(upload);
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", upload.id);
+        data.put("error", e.getMessage());
+        emit("upload-failed", data);
+    }
+
+    // One event for all running uploads at most every PROGRESS_INTERVAL_MS
+    private void progress() {
+        synchronized (this) {
+            if (progressScheduled) {
+                return;
+            }
+            progressScheduled = true;
+        }
+        handler.postDelayed(() -> {
+            synchronized (this) {
+                progressScheduled = false;
+            }
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (Upload upload : uploads.values()) {
+                if (STATUS_RUNNING.equals(upload.status)) {
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("id", upload.id);
+                    entry.put("sent", upload.sent());
+                    entry.put("total", upload.size);
+                    batch.add(entry);
+                }
+            }
+            if (!batch.isEmpty()) {
+                emit("upload-progress", batch);
+            }
+        }, PROGRESS_INTERVAL_MS);
+    }
+
+    private void emit(String event, Object data) {
+        PluginExecutor.runOnMain(() -> {
+            MessageBus bus = SWVContext.getPluginManager().getMessageBus();
+            if (bus != null) {
+                bus.emit(event, data);
+            }
+        });
+    }
+
+    // "key base64(value),..." as the Upload-Metadata header wants it
+    private static String metadata(Upload upload) {
+        StringBuilder header = new StringBuilder();
+        Iterator<String> keys = upload.metadata.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (header.length() > 0) {
+                header.append(',');
+            }
+            header.append(key).append(' ').append(Base64.encodeToString(
+                    upload.metadata.optString(key).getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP));
+        }
+        return header.toString();
+    }
+
+    private ParcelFileDescriptor openFile(Upload upload) throws IOException {
+        Uri uri = Uri.parse(upload.file);
+        if ("file".equals(uri.getScheme())) {
+            return ParcelFileDescriptor.open(processedFile(uri), ParcelFileDescriptor.MODE_READ_ONLY);
+        }
+        ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException(upload.file);
+        }
+        return descriptor;
+    }
+
+    private long size(Uri uri) throws IOException {
+        if ("file".equals(uri.getScheme())) {
+            File file = processedFile(uri);
+            if (!file.isFile()) {
+                throw new FileNotFoundException(uri.toString());
+            }
+            return file.length();
+        }
+        ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (descriptor == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+        try {
+            return descriptor.getStatSize();
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    // The only file:// URIs read are FileProcessing's re-encoded images and our copies of them; anything else is refused
+    private File processedFile(Uri uri) throws IOException {
+        File file = uri.getPath() != null ? new File(uri.getPath()).getCanonicalFile() : null;
+        if (file == null || !(isInside(FileProcessing.processed_dir(context), file) || isInside(new File(root, COPIES), file))) {
+            throw new FileNotFoundException("Not an upload copy: " + uri);
+        }
+        return file;
+    }
+
+    private static boolean isInside(File dir, File file) throws IOException {
+        return file.getPath().startsWith(dir.getCanonicalPath() + File.separator);
+    }
+
+    // The cache sweep removes processed images after an hour; an upload can wait far longer for the network
+    private File keepCopy(Upload upload, File source) throws IOException {
+        File dir = new File(root, COPIES);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File copy = new File(dir, upload.id + "-" + source.getName());
+        try (FileChannel in = new FileInputStream(source).getChannel();
+             FileChannel out = new FileOutputStream(copy).getChannel()) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        return copy;
+    }
+
+    // Drops the saved state and, for re-encoded images, our copy of the file
+    private void discard(Upload upload) {
+        new File(root, upload.id + ".json").delete();
+        Uri uri = upload.file != null ? Uri.parse(upload.file) : null;
+        if (uri != null && "file".equals(uri.getScheme()) && uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            try {
+                if (isInside(new File(root, COPIES), file.getCanonicalFile())) {
+                    file.delete();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not remove the copy for " + upload.id);
+            }
+        }
+    }
+
+    private String displayName(Uri uri) {
+        if ("content".equals(uri.getScheme())) {
+            try (Cursor cursor = context.getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst() && cursor.getString(0) != null) {
+                    return cursor.getString(0);
+                }
+            } catch (RuntimeException e) {
+                // Fall back to the path
+            }
+        }
+        String name = uri.getLastPathSegment();
+        return name != null ? name : "file";
+    }
+
+    private String type(Uri uri) {
+        if ("file".equals(uri.getScheme())) {
+            String extension = android.webkit.MimeTypeMap.getFileExtensionFromUrl(uri.toString());
+            return android.webkit.MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+        }
+        return context.getContentResolver().getType(uri);
+    }
+
+    private void save(Upload upload) throws IOException {
+        if (!root.exists() && !root.mkdirs()) {
+            throw new IOException("Cannot create " + root);
+        }
+        byte[] json;
+        synchronized (upload) {
+            try {
+                json = upload.toJson().toString().getBytes(StandardCharsets.UTF_8);
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+        }
+        AtomicFile file = new AtomicFile(new File(root, upload.id + ".json"));
+        FileOutputStream out = file.startWrite();
+        try {
+            out.write(json);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            file.failWrite(out);
+            throw e;
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        // Not used in this plugin
+    }
+
+    @Override
+    public boolean shouldOverrideUrlLoading(WebView view, String url) {
+        return false;
+    }
+
+    @Override
+    public void onPageStarted(String url) {
+        // Not used in this plugin
+    }
+
+    @Override
+    public void onPageFinished(String url) {
+        // Not used in this plugin
+    }
+
+    @Override public void onResume() {}
+
+    @Override
+    public void onDestroy() {
+        // Running uploads keep going on the pool; their state is saved after every chunk
+        ConnectivityMonitor.removeListener(networkListener);
+        if (pickReply != null) {
+            pickReply.reject("Activity destroyed");
+            pickReply = null;
+        }
+    }
+
+    @Override
+    public void evaluateJavascript(String script) {
+        // Not used in this plugin
+    }
+
+    private static final class Part {
+        // Byte range of the file this part covers, the tus upload it goes to and how much the server has
+        long start;
+        long length;
+        boolean partial;
+        volatile String url;
+        volatile long offset;
+    }
+
+    private static final class Upload {
+        final String id;
+        final List<Part> parts = new ArrayList<>();
+        final AtomicInteger remaining = new AtomicInteger();
+        volatile String status = STATUS_QUEUED;
+        volatile int generation;
+        String endpoint;
+        String file;
+        long size;
+        JSONObject headers;
+        JSONObject metadata;
+        String finalUrl;
+
+        Upload(String id) {
+            this.id = id;
+        }
+
+        boolean isActive(int run) {
+            return run == generation && STATUS_RUNNING.equals(status);
+        }
+
+        long sent() {
+            long sent = 0;
+            for (Part part : parts) {
+                sent += part.offset;
+            }
+            return sent;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONArray list = new JSONArray();
+            for (Part part : parts) {
+                list.put(new JSONObject()
+                        .put("start", part.start)
+                        .put("length", part.length)
+                        .put("partial", part.partial)
+                        .put("url", part.url)
+                        .put("offset", part.offset));
+            }
+            return new JSONObject()
+                    .put("id", id)
+                    .put("endpoint", endpoint)
+                    .put("file", file)
+                    .put("size", size)
+                    .put("headers", headers)
+                    .put("metadata", metadata)
+                    .put("finalUrl", finalUrl)
+                    .put("parts", list);
+        }
+
+        static Upload fromJson(JSONObject json) throws JSONException {
+            Upload upload = new Upload(json.getString("id"));
+            upload.endpoint = json.getString("endpoint");
+            upload.file = json.getString("file");
+            upload.size = json.getLong("size");
+            upload.headers = json.optJSONObject("headers") != null ? json.getJSONObject("headers") : new JSONObject();
+            upload.metadata = json.optJSONObject("metadata") != null ? json.getJSONObject("metadata") : new JSONObject();
+            upload.finalUrl = json.optString("finalUrl", null);
+            JSONArray list = json.optJSONArray("parts");
+            for (int i = 0; list != null && i < list.length(); i++) {
+                JSONObject item = list.getJSONObject(i);
+                Part part = new Part();
+                part.start = item.getLong("start");
+                part.length = item.getLong("length");
+                part.partial = item.optBoolean("partial");
+                part.url = item.optString("url", null);
+                part.offset = item.optLong("offset");
+                upload.parts.add(part);
+            }
+            return upload;
+        }
+    }
+}
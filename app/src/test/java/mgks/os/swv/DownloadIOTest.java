@@ -0,0 +1,242 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DownloadIOTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String url;
+    private byte[] content;
+    private volatile String etag = "\"v1\"";
+    private volatile boolean rangesSupported = true;
+    private final CopyOnWriteArrayList<String> ranges = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<String> ifRanges = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startServer() throws IOException {
+        content = new byte[300 * 1024 + 17];
+        new Random(42).nextBytes(content);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/file.bin", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file.bin";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    // A small static file server: byte ranges, a strong ETag and If-Range, as RFC 9110 describes them
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        ranges.add(String.valueOf(range));
+        ifRanges.add(String.valueOf(ifRange));
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        int start = 0;
+        int end = content.length - 1;
+        boolean partial = false;
+        if (rangesSupported && range != null && range.startsWith("bytes=") && (ifRange == null || ifRange.equals(etag))) {
+            String[] bounds = range.substring(6).split("-", 2);
+            start = Integer.parseInt(bounds[0]);
+            end = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            partial = true;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+        exchange.sendResponseHeaders(partial ? 206 : 200, end - start + 1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, start, end - start + 1);
+        }
+    }
+
+    private HttpURLConnection open(String range, String probedEtag) throws IOException {
+        return DownloadIO.open(url, "test-agent", null, range, probedEtag, null);
+    }
+
+    private static DownloadIO.Sink sink(long[] written, long stopAfter) {
+        return new DownloadIO.Sink() {
+            @Override
+            public boolean isActive() {
+                return written[0] < stopAfter;
+            }
+
+            @Override
+            public void onWritten(int count) {
+                written[0] += count;
+            }
+        };
+    }
+
+    @Test
+    public void probeLearnsSizeRangeSupportAndValidator() throws IOException {
+        DownloadIO.Probe probe = DownloadIO.probe(open("bytes=0-0", null));
+        assertTrue(probe.ranges);
+        assertEquals(content.length, probe.total);
+        assertEquals("\"v1\"", probe.etag);
+        assertEquals("application/octet-stream", probe.contentType);
+        assertEquals("bytes=0-0", ranges.get(0));
+        assertEquals("null", ifRanges.get(0));
+    }
+
+    @Test
+    public void probeWithoutRangeSupportFallsBackToContentLength() throws IOException {
+        rangesSupported = false;
+        DownloadIO.Probe probe = DownloadIO.probe(open("bytes=0-0", null));
+        assertFalse(probe.ranges);
+        assertEquals(content.length, probe.total);
+    }
+
+    @Test
+    public void segmentsWriteTheirRangesInPlace() throws IOException {
+        File target = temp.newFile("segments.bin");
+        long total = content.length;
+        long half = total / 2;
+        try (FileChannel channel = new RandomAccessFile(target, "rw").getChannel()) {
+            // Second half first: each segment writes at absolute positions
+            long[] written = {0};
+            assertEquals(total, DownloadIO.copy(open("bytes=" + half + "-" + (total - 1), "\"v1\""), true, channel, half, sink(written, Long.MAX_VALUE)));
+            assertEquals(total - half, written[0]);
+            written[0] = 0;
+            assertEquals(half, DownloadIO.copy(open("bytes=0-" + (half - 1), "\"v1\""), true, channel, 0, sink(written, Long.MAX_VALUE)));
+        }
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        assertEquals("\"v1\"", ifRanges.get(0));
+    }
+
+    @Test
+    public void resumesFromWhereItStopped() throws IOException {
+        File target = temp.newFile("resume.bin");
+        long[] written = {0};
+        try (FileChannel channel = new RandomAccessFile(target, "rw").getChannel()) {
+            // Stopped after the first buffer, as on a lost connection or a cancelled run
+            DownloadIO.copy(open("bytes=0-" + (content.length - 1), "\"v1\""), true, channel, 0, sink(written, 1));
+        }
+        long done = written[0];
+        assertTrue(done > 0 && done < content.length);
+
+        try (FileChannel channel = new RandomAccessFile(target, "rw").getChannel()) {
+            DownloadIO.copy(open("bytes=" + done + "-" + (content.length - 1), "\"v1\""), true, channel, done, sink(written, Long.MAX_VALUE));
+        }
+        assertEquals(content.length, written[0]);
+        assertEquals("bytes=" + done + "-" + (content.length - 1), ranges.get(1));
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void changedFileFailsIfRange() throws IOException {
+        File target = temp.newFile("changed.bin");
+        etag = "\"v2\"";
+        try (FileChannel channel = new RandomAccessFile(target, "rw").getChannel()) {
+            DownloadIO.copy(open("bytes=100-199", "\"v1\""), true, channel, 100, sink(new long[1], Long.MAX_VALUE));
+            fail("A 200 for a ranged request must not be spliced into the file");
+        } catch (DownloadIO.ChangedException expected) {
+            // ok
+        }
+        assertEquals("\"v1\"", ifRanges.get(0));
+        assertEquals(0, target.length());
+    }
+
+    @Test
+    public void weakEtagIsNotUsedForIfRange() throws IOException {
+        DownloadIO.open(url, null, null, "bytes=0-9", "W/\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT").getResponseCode();
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", ifRanges.get(0));
+    }
+
+    @Test
+    public void serverErrorsAreReportedWithTheirStatus() throws IOException {
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        HttpURLConnection connection = DownloadIO.open(url.replace("/file.bin", "/missing"), null, null, "bytes=0-0", null, null);
+        try {
+            DownloadIO.probe(connection);
+            fail("Expected HttpException");
+        } catch (DownloadIO.HttpException e) {
+            assertEquals(404, e.status);
+        }
+    }
+
+    @Test
+    public void checksumMatchesAndMismatches() throws IOException {
+        String expected = DownloadIO.sha256(new ByteArrayInputStream(content));
+        assertEquals(64, expected.length());
+        DownloadIO.verify(new ByteArrayInputStream(content), expected);
+
+        byte[] corrupt = content.clone();
+        corrupt[1234] ^= 1;
+        try {
+            DownloadIO.verify(new ByteArrayInputStream(corrupt), expected);
+            fail("Expected ChecksumException");
+        } catch (DownloadIO.ChecksumException expectedFailure) {
+            // ok
+        }
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                DownloadIO.sha256(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void fileNamesCannotLeaveTheDownloadsFolder() {
+        assertEquals("passwd", DownloadIO.safeFileName("../../etc/passwd"));
+        assertEquals("evil.apk", DownloadIO.safeFileName("..\\..\\evil.apk"));
+        assertEquals("report.pdf", DownloadIO.safeFileName("/sdcard/Download/report.pdf"));
+        assertEquals("download", DownloadIO.safeFileName(".."));
+        assertEquals("download", DownloadIO.safeFileName("a/.."));
+        assertEquals("download", DownloadIO.safeFileName(""));
+        assertEquals("download", DownloadIO.safeFileName(null));
+        assertEquals("bashrc", DownloadIO.safeFileName(".bashrc"));
+        assertEquals("a_b_c.txt", DownloadIO.safeFileName("a:b\nc.txt"));
+        assertEquals("photo (1).jpg", DownloadIO.safeFileName("photo (1).jpg"));
+        String longName = DownloadIO.safeFileName(new String(new char[300]).replace('\0', 'x') + ".tar.gz");
+        assertEquals(127, longName.length());
+        assertTrue(longName.endsWith(".gz"));
+    }
+}
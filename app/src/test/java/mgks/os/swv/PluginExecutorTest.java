@@ -0,0 +1,75 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PluginExecutorTest {
+
+    @Test
+    public void heldTaskKeepsItsSlotUntilReleased() throws Exception {
+        AtomicReference<Runnable> held = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        assertTrue(PluginExecutor.trySubmit("held", 1, release -> {
+            held.set(release);
+            started.countDown();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // run() has returned, but the call has not settled yet
+        Thread.sleep(50);
+        assertFalse(PluginExecutor.trySubmit("held", 1, () -> {}));
+
+        held.get().run();
+        held.get().run(); // a second release must not free a second slot
+        CountDownLatch ran = new CountDownLatch(1);
+        assertTrue(PluginExecutor.trySubmit("held", 1, release -> ran.countDown()));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse(PluginExecutor.trySubmit("held", 1, () -> {}));
+    }
+
+    @Test
+    public void plainTaskReleasesWhenItReturns() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        assertTrue(PluginExecutor.trySubmit("plain", 1, ran::countDown));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        CountDownLatch again = new CountDownLatch(1);
+        assertTrue(PluginExecutor.trySubmit("plain", 1, again::countDown));
+        assertTrue(again.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void throwingHeldTaskReleasesItsSlot() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        assertTrue(PluginExecutor.trySubmit("throws", 1, release -> {
+            ran.countDown();
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertTrue(PluginExecutor.trySubmit("throws", 1, () -> {}));
+    }
+}
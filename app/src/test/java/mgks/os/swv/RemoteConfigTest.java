@@ -0,0 +1,302 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class RemoteConfigTest {
+
+    private static KeyPair signer;
+    private static KeyPair stranger;
+
+    private static final RemoteConfig.SignatureDecoder DECODER = header -> Base64.getDecoder().decode(header);
+
+    private HttpServer server;
+    private String url;
+    // What the stand-in serves: the whole document, a delta for requests naming a base, and its ETag
+    private volatile String full;
+    private volatile String delta;
+    private volatile String etag;
+    private volatile KeyPair signedBy;
+    private final CopyOnWriteArrayList<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<String> bases = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        signer = generator.generateKeyPair();
+        stranger = generator.generateKeyPair();
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        signedBy = signer;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/config.json", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/config.json";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    // A config server as swv.properties describes it: ETag revalidation, deltas against X-SWV-Config-Base, signed bodies
+    private void serve(HttpExchange exchange) throws IOException {
+        String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String base = exchange.getRequestHeaders().getFirst("X-SWV-Config-Base");
+        ifNoneMatch.add(String.valueOf(validator));
+        bases.add(String.valueOf(base));
+        if (etag != null && etag.equals(validator)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = (base != null && delta != null ? delta : full).getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("X-SWV-Signature", Base64.getEncoder().encodeToString(sign(body, signedBy)));
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private RemoteConfig.Update check(JSONObject state) throws Exception {
+        return RemoteConfig.check(url, state, signer.getPublic(), DECODER, 1000);
+    }
+
+    private static byte[] sign(byte[] body, KeyPair keys) throws Exception {
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(keys.getPrivate());
+        signature.update(body);
+        return signature.sign();
+    }
+
+    private static JSONObject state(long version, String values) throws Exception {
+        return new JSONObject().put("version", version).put("values", new JSONObject(values));
+    }
+
+    @Test
+    public void acceptsBodySignedWithTheConfiguredKey() throws Exception {
+        byte[] body = "{\"version\":1,\"values\":{}}".getBytes(StandardCharsets.UTF_8);
+        RemoteConfig.verify(body, sign(body, signer), signer.getPublic());
+    }
+
+    @Test
+    public void rejectsTamperedBody() throws Exception {
+        byte[] body = "{\"version\":1,\"values\":{\"ui.layout\":\"1\"}}".getBytes(StandardCharsets.UTF_8);
+        byte[] signature = sign(body, signer);
+        byte[] tampered = "{\"version\":1,\"values\":{\"ui.layout\":\"0\"}}".getBytes(StandardCharsets.UTF_8);
+        assertRejected(tampered, signature);
+    }
+
+    @Test
+    public void rejectsSignatureFromAnotherKey() throws Exception {
+        byte[] body = "{\"version\":1,\"values\":{}}".getBytes(StandardCharsets.UTF_8);
+        assertRejected(body, sign(body, stranger));
+    }
+
+    @Test
+    public void rejectsMissingOrMalformedSignature() throws Exception {
+        byte[] body = "{\"version\":1,\"values\":{}}".getBytes(StandardCharsets.UTF_8);
+        assertRejected(body, null);
+        assertRejected(body, new byte[0]);
+        assertRejected(body, new byte[] {0x30, 0x02, 0x01});
+    }
+
+    private static void assertRejected(byte[] body, byte[] signature) throws Exception {
+        try {
+            RemoteConfig.verify(body, signature, signer.getPublic());
+            fail("Signature should have been rejected");
+        } catch (SignatureException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void refusesOlderVersion() throws Exception {
+        JSONObject body = new JSONObject("{\"version\":4,\"values\":{\"ui.layout\":\"0\"}}");
+        try {
+            RemoteConfig.nextValues(state(5, "{}"), body);
+            fail("Older version should have been refused");
+        } catch (SignatureException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void acceptsSameOrNewerVersion() throws Exception {
+        JSONObject same = new JSONObject("{\"version\":5,\"values\":{\"ui.layout\":\"0\"}}");
+        assertEquals("0", RemoteConfig.nextValues(state(5, "{}"), same).getString("ui.layout"));
+        JSONObject first = new JSONObject("{\"version\":1,\"values\":{\"ui.layout\":\"2\"}}");
+        assertEquals("2", RemoteConfig.nextValues(null, first).getString("ui.layout"));
+    }
+
+    @Test
+    public void appliesDeltaAgainstTheVersionHeld() throws Exception {
+        JSONObject held = state(5, "{\"ui.layout\":\"1\",\"ui.orientation\":\"0\"}");
+        JSONObject delta = new JSONObject("{\"version\":6,\"base\":5,\"set\":{\"ui.layout\":\"0\"},\"unset\":[\"ui.orientation\"]}");
+        assertFalse(RemoteConfig.isUnusableDelta(held, delta));
+        JSONObject values = RemoteConfig.nextValues(held, delta);
+        assertEquals("0", values.getString("ui.layout"));
+        assertFalse(values.has("ui.orientation"));
+        // The saved state is left alone
+        assertEquals("1", held.getJSONObject("values").getString("ui.layout"));
+    }
+
+    @Test
+    public void refusesDeltaAgainstAnotherBase() throws Exception {
+        JSONObject delta = new JSONObject("{\"version\":7,\"base\":4,\"set\":{\"ui.layout\":\"0\"}}");
+        assertTrue(RemoteConfig.isUnusableDelta(state(5, "{}"), delta));
+        assertTrue(RemoteConfig.isUnusableDelta(null, delta));
+        try {
+            RemoteConfig.nextValues(state(5, "{}"), delta);
+            fail("Delta against another base should have been refused");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void fullDocumentIsNeverAnUnusableDelta() throws Exception {
+        JSONObject full = new JSONObject("{\"version\":7,\"values\":{}}");
+        assertFalse(RemoteConfig.isUnusableDelta(null, full));
+        assertFalse(RemoteConfig.isUnusableDelta(state(5, "{}"), full));
+    }
+
+    @Test
+    public void dropsProtectedKeysAndNulls() throws Exception {
+        JSONObject values = new JSONObject()
+                .put("ui.layout", 0)
+                .put("feature.uploads", true)
+                .put("plugins.enabled", new JSONArray().put("ToastPlugin").put("DialogPlugin"))
+                .put("build.application.id", "com.evil")
+                .put("remote.config.url", "https://evil.example/config.json")
+                .put("remote.config.public.key", "AAAA")
+                .put("ui.orientation", JSONObject.NULL);
+        Properties overrides = RemoteConfig.toOverrides(values);
+        assertEquals("0", overrides.getProperty("ui.layout"));
+        assertEquals("true", overrides.getProperty("feature.uploads"));
+        assertEquals("ToastPlugin,DialogPlugin", overrides.getProperty("plugins.enabled"));
+        assertNull(overrides.getProperty("build.application.id"));
+        assertNull(overrides.getProperty("remote.config.url"));
+        assertNull(overrides.getProperty("remote.config.public.key"));
+        assertNull(overrides.getProperty("ui.orientation"));
+        assertEquals(3, overrides.size());
+    }
+
+    @Test
+    public void revalidatesWithTheSavedEtag() throws Exception {
+        full = "{\"version\":1,\"values\":{\"ui.layout\":\"1\"}}";
+        etag = "\"v1\"";
+        RemoteConfig.Update first = check(null);
+        assertEquals("1", first.values.getString("ui.layout"));
+        assertEquals("\"v1\"", first.state.getString("etag"));
+        assertEquals("null", ifNoneMatch.get(0));
+
+        RemoteConfig.Update second = check(first.state);
+        assertEquals("\"v1\"", ifNoneMatch.get(1));
+        assertEquals("1", bases.get(1));
+        // Nothing new to write; the held version stays and only the check time moves
+        assertNull(second.values);
+        assertEquals(1, second.state.getLong("version"));
+        assertEquals("1", second.state.getJSONObject("values").getString("ui.layout"));
+        assertEquals(1000, second.state.getLong("fetchedAt"));
+    }
+
+    @Test
+    public void appliesDeltaServedForTheBaseHeld() throws Exception {
+        full = "{\"version\":2,\"values\":{\"ui.layout\":\"0\"}}";
+        delta = "{\"version\":2,\"base\":1,\"set\":{\"ui.layout\":\"0\"},\"unset\":[\"ui.orientation\"]}";
+        etag = "\"v2\"";
+        JSONObject held = state(1, "{\"ui.layout\":\"1\",\"ui.orientation\":\"0\",\"feature.uploads\":\"true\"}").put("etag", "\"v1\"");
+        RemoteConfig.Update update = check(held);
+        assertEquals(1, bases.size());
+        assertEquals("1", bases.get(0));
+        assertEquals("\"v1\"", ifNoneMatch.get(0));
+        assertEquals("0", update.values.getString("ui.layout"));
+        assertEquals("true", update.values.getString("feature.uploads"));
+        assertFalse(update.values.has("ui.orientation"));
+        assertEquals(2, update.state.getLong("version"));
+        assertEquals("\"v2\"", update.state.getString("etag"));
+    }
+
+    @Test
+    public void refetchesWholeDocumentWhenDeltaDoesNotFit() throws Exception {
+        full = "{\"version\":4,\"values\":{\"ui.layout\":\"2\"}}";
+        delta = "{\"version\":4,\"base\":3,\"set\":{\"ui.layout\":\"0\"}}";
+        etag = "\"v4\"";
+        RemoteConfig.Update update = check(state(1, "{\"ui.orientation\":\"0\"}"));
+        // Second request without a base or validator, so the server answers with the whole document
+        assertEquals(2, bases.size());
+        assertEquals("1", bases.get(0));
+        assertEquals("null", bases.get(1));
+        assertEquals("null", ifNoneMatch.get(1));
+        assertEquals("2", update.values.getString("ui.layout"));
+        assertFalse(update.values.has("ui.orientation"));
+        assertEquals(4, update.state.getLong("version"));
+    }
+
+    @Test
+    public void rejectsDocumentWithBadSignature() throws Exception {
+        full = "{\"version\":1,\"values\":{\"ui.layout\":\"0\"}}";
+        signedBy = stranger;
+        try {
+            check(null);
+            fail("Document signed with another key should have been rejected");
+        } catch (SignatureException expected) {
+            // ok
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package mgks.os.swv;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UrlRouterTest {
+
+    private final UrlRouter router = UrlRouter.build("example.com", "mgks.dev, *.cdn.net,.partner.org");
+
+    @Test
+    public void appHostMatchesExactlyOnly() {
+        assertTrue(router.isInternal("https://example.com/"));
+        assertTrue(router.isInternal("https://example.com"));
+        assertFalse(router.isInternal("https://www.example.com/"));
+        assertFalse(router.isInternal("https://sub.example.com/page"));
+    }
+
+    @Test
+    public void exceptionsMatchThemselvesAndSubdomains() {
+        assertTrue(router.isInternal("https://mgks.dev/"));
+        assertTrue(router.isInternal("https://docs.mgks.dev/smart-webview"));
+        assertTrue(router.isInternal("https://a.b.mgks.dev/"));
+        assertTrue(router.isInternal("https://cdn.net/x.js"));
+        assertTrue(router.isInternal("https://img.cdn.net/x.png"));
+        assertTrue(router.isInternal("https://partner.org/"));
+    }
+
+    @Test
+    public void lookAlikeSuffixesAreExternal() {
+        assertFalse(router.isInternal("https://evilexample.com/"));
+        assertFalse(router.isInternal("https://evilmgks.dev/"));
+        assertFalse(router.isInternal("https://example.com.evil.net/"));
+        assertFalse(router.isInternal("https://mgks.dev.evil.net/"));
+        assertFalse(router.isInternal("https://notcdn.net/"));
+    }
+
+    @Test
+    public void portsAreIgnored() {
+        assertTrue(router.isInternal("https://example.com:8443/path"));
+        assertTrue(router.isInternal("http://docs.mgks.dev:8080/"));
+        assertFalse(router.isInternal("https://evilexample.com:443/"));
+    }
+
+    @Test
+    public void hostsCompareCaseInsensitively() {
+        assertTrue(router.isInternal("https://EXAMPLE.com/"));
+        assertTrue(router.isInternal("HTTPS://Docs.MGKS.Dev/Page"));
+        assertTrue(UrlRouter.build("Example.COM", "").isInternal("https://example.com/"));
+        assertFalse(router.isInternal("https://WWW.Example.com/"));
+    }
+
+    @Test
+    public void userInfoQueryAndFragmentDoNotConfuseTheHost() {
+        assertFalse(router.isInternal("https://example.com@evil.net/"));
+        assertTrue(router.isInternal("https://user:pw@example.com/"));
+        assertFalse(router.isInternal("https://evil.net/?next=https://example.com/"));
+        assertFalse(router.isInternal("https://evil.net#example.com"));
+        assertTrue(router.isInternal("https://example.com./"));
+    }
+
+    @Test
+    public void emptyAndMissingInputs() {
+        assertFalse(router.isInternal(null));
+        assertFalse(router.isInternal("https:///path"));
+        assertFalse(UrlRouter.build("", null).isInternal("https://example.com/"));
+    }
+
+    @Test
+    public void routesBySchemeCaseInsensitively() {
+        assertEquals(UrlRouter.ROUTE_WEB, router.route("https://example.com/"));
+        assertEquals(UrlRouter.ROUTE_WEB, router.route("HTTP://example.com/"));
+        assertEquals(UrlRouter.ROUTE_TEL, router.route("tel:+123"));
+        assertEquals(UrlRouter.ROUTE_SHARE, router.route("share:"));
+        assertEquals(UrlRouter.ROUTE_NONE, router.route("mailto:a@b.c"));
+        assertEquals(UrlRouter.ROUTE_NONE, router.route("no-scheme"));
+        assertEquals(UrlRouter.ROUTE_NONE, router.route(null));
+    }
+}
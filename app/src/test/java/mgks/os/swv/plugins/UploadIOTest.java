@@ -0,0 +1,336 @@
+package mgks.os.swv.plugins;
+
+/*
+  Smart WebView v7
+  https://github.com/mgks/Android-SmartWebView
+
+  A modern, open-source WebView wrapper for building advanced hybrid Android apps.
+  Native features, modular plugins, and full customisation—built for developers.
+
+  - Documentation: https://docs.mgks.dev/smart-webview
+  - Plugins: https://docs.mgks.dev/smart-webview/plugins
+  - Discussions: https://github.com/mgks/Android-SmartWebView/discussions
+  - Sponsor the Project: https://github.com/sponsors/mgks
+
+  MIT License — https://opensource.org/licenses/MIT
+
+  Mentioning Smart WebView in your project helps others find it and keeps the dev loop alive.
+*/
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class UploadIOTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private HttpServer server;
+    private String endpoint;
+    private byte[] content;
+    private File file;
+    private final JSONObject headers = new JSONObject();
+    private final Map<String, ByteArrayOutputStream> stored = new ConcurrentHashMap<>();
+    private final Map<String, Long> lengths = new ConcurrentHashMap<>();
+    private final Map<String, String> metadata = new ConcurrentHashMap<>();
+    private final Set<String> partials = ConcurrentHashMap.newKeySet();
+    private final CopyOnWriteArrayList<String> requests = new CopyOnWriteArrayList<>();
+    // Bytes of the next PATCH the server keeps before the connection "drops"
+    private volatile int dropAfter = -1;
+
+    @Before
+    public void startServer() throws Exception {
+        content = new byte[200 * 1024 + 5];
+        new Random(7).nextBytes(content);
+        file = temp.newFile("upload.bin");
+        Files.write(file.toPath(), content);
+        headers.put("Authorization", "Bearer test");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/files", this::serve);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/files";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    // A minimal tus 1.0 server: creation, HEAD, PATCH through the method override, termination
+    private void serve(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String override = exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override");
+        if (override != null) {
+            method = override;
+        }
+        String path = exchange.getRequestURI().getPath();
+        requests.add(method + " " + path);
+        exchange.getResponseHeaders().set("Tus-Resumable", "1.0.0");
+        if (!"1.0.0".equals(exchange.getRequestHeaders().getFirst("Tus-Resumable"))
+                || !"Bearer test".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            respond(exchange, 412);
+            return;
+        }
+        ByteArrayOutputStream upload = stored.get(path);
+        switch (method) {
+            case "OPTIONS":
+                exchange.getResponseHeaders().set("Tus-Extension", "creation,termination,concatenation");
+                respond(exchange, 204);
+                break;
+            case "POST":
+                String id = "/files/" + (stored.size() + 1);
+                String length = exchange.getRequestHeaders().getFirst("Upload-Length");
+                String concat = exchange.getRequestHeaders().getFirst("Upload-Concat");
+                ByteArrayOutputStream created = new ByteArrayOutputStream();
+                if (concat != null && concat.startsWith("final;")) {
+                    // The final upload is the listed partial uploads joined in order; each has to be complete
+                    for (String part : concat.substring("final;".length()).trim().split(" +")) {
+                        String partPath = URI.create(part).getPath();
+                        ByteArrayOutputStream partial = stored.get(partPath);
+                        if (partial == null || !partials.contains(partPath) || partial.size() != lengths.get(partPath)) {
+                            respond(exchange, 400);
+                            return;
+                        }
+                        created.write(partial.toByteArray());
+                    }
+                    length = Integer.toString(created.size());
+                } else if ("partial".equals(concat)) {
+                    partials.add(id);
+                }
+                stored.put(id, created);
+                lengths.put(id, length != null ? Long.parseLong(length) : -1);
+                metadata.put(id, String.valueOf(exchange.getRequestHeaders().getFirst("Upload-Metadata")));
+                // Path only, as many servers send it
+                exchange.getResponseHeaders().set("Location", id);
+                respond(exchange, 201);
+                break;
+            case "HEAD":
+                if (upload == null) {
+                    respond(exchange, 404);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Upload-Offset", Integer.toString(upload.size()));
+                exchange.getResponseHeaders().set("Upload-Length", Long.toString(lengths.get(path)));
+                respond(exchange, 200);
+                break;
+            case "PATCH":
+                if (upload == null) {
+                    respond(exchange, 404);
+                    return;
+                }
+                byte[] body = readAll(exchange.getRequestBody());
+                long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Offset"));
+                if (offset != upload.size()) {
+                    respond(exchange, 409);
+                    return;
+                }
+                if (!"application/offset+octet-stream".equals(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                    respond(exchange, 415);
+                    return;
+                }
+                int keep = dropAfter >= 0 ? Math.min(dropAfter, body.length) : body.length;
+                upload.write(body, 0, keep);
+                if (dropAfter >= 0) {
+                    dropAfter = -1;
+                    respond(exchange, 500);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Upload-Offset", Integer.toString(upload.size()));
+                respond(exchange, 204);
+                break;
+            case "DELETE":
+                stored.remove(path);
+                respond(exchange, 204);
+                break;
+            default:
+                respond(exchange, 405);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        // No keep-alive, so a reused connection can't race the server closing it
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private long patch(String url, long offset, long length) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            return UploadIO.patch(url, offset, channel, offset, length, ByteBuffer.allocate(16 * 1024), headers);
+        }
+    }
+
+    @Test
+    public void createReturnsAbsoluteUrlAndSendsLengthAndMetadata() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, "filename dXBsb2FkLmJpbg==", headers);
+        assertEquals(endpoint + "/1", url);
+        assertEquals(Long.valueOf(content.length), lengths.get("/files/1"));
+        assertEquals("filename dXBsb2FkLmJpbg==", metadata.get("/files/1"));
+        assertEquals(0, UploadIO.offset(url, headers));
+        assertEquals("POST /files", requests.get(0));
+    }
+
+    @Test
+    public void patchSendsChunksThroughTheMethodOverride() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, null, headers);
+        long chunk = 64 * 1024;
+        long offset = 0;
+        while (offset < content.length) {
+            offset = patch(url, offset, Math.min(chunk, content.length - offset));
+        }
+        assertEquals(content.length, offset);
+        assertArrayEquals(content, stored.get("/files/1").toByteArray());
+        assertTrue(requests.contains("PATCH /files/1"));
+        assertFalse(requests.contains("POST /files/1"));
+    }
+
+    @Test
+    public void headResyncsAfterAChunkThatHalfArrived() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, null, headers);
+        dropAfter = 10000;
+        try {
+            patch(url, 0, 64 * 1024);
+            fail("Expected HttpException");
+        } catch (UploadIO.HttpException e) {
+            assertEquals(500, e.status);
+            assertFalse(e.isPermanent());
+        }
+        // The server kept part of the chunk; the client asks instead of trusting its own count
+        long offset = UploadIO.offset(url, headers);
+        assertEquals(10000, offset);
+        offset = patch(url, offset, content.length - offset);
+        assertEquals(content.length, offset);
+        assertArrayEquals(content, stored.get("/files/1").toByteArray());
+    }
+
+    @Test
+    public void offsetMismatchIsReportedAsConflict() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, null, headers);
+        assertEquals(4096, patch(url, 0, 4096));
+        // A retried chunk the server already has
+        assertEquals(-1, patch(url, 0, 4096));
+        assertEquals(4096, stored.get("/files/1").size());
+        assertEquals(4096, UploadIO.offset(url, headers));
+        assertFalse(new UploadIO.HttpException(409).isPermanent());
+        assertTrue(new UploadIO.HttpException(403).isPermanent());
+    }
+
+    @Test
+    public void resumesFromTheServerOffsetAfterARestart() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, null, headers);
+        long saved = patch(url, 0, 50000);
+        // A later chunk landed, but the process died before its offset was saved
+        patch(url, saved, 30000);
+
+        long offset = UploadIO.offset(url, headers);
+        assertEquals(80000, offset);
+        while (offset < content.length) {
+            offset = patch(url, offset, Math.min(50000, content.length - offset));
+        }
+        assertArrayEquals(content, stored.get("/files/1").toByteArray());
+    }
+
+    @Test
+    public void expiredUploadIsReported() throws IOException {
+        String url = UploadIO.create(endpoint, content.length, null, null, headers);
+        UploadIO.delete(url, headers);
+        try {
+            UploadIO.offset(url, headers);
+            fail("Expected ExpiredException");
+        } catch (UploadIO.ExpiredException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void partialUploadsAreJoinedWithAFinalCreation() throws IOException {
+        assertTrue(UploadIO.supportsConcatenation(endpoint, headers));
+        int half = content.length / 2;
+        String first = UploadIO.create(endpoint, half, "partial", null, headers);
+        String second = UploadIO.create(endpoint, content.length - half, "partial", null, headers);
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+            assertEquals(content.length - half, UploadIO.patch(second, 0, channel, half, content.length - half, buffer, headers));
+            assertEquals(half, UploadIO.patch(first, 0, channel, 0, half, buffer, headers));
+        }
+        String merged = UploadIO.create(endpoint, -1, "final;" + first + " " + second, "filename eA==", headers);
+        assertEquals(endpoint + "/3", merged);
+        assertEquals("filename eA==", metadata.get("/files/3"));
+        // What the server assembled from the Upload-Concat list
+        assertEquals(content.length, UploadIO.offset(merged, headers));
+        assertArrayEquals(content, stored.get("/files/3").toByteArray());
+    }
+
+    @Test
+    public void finalCreationNeedsCompleteParts() throws IOException {
+        int half = content.length / 2;
+        String first = UploadIO.create(endpoint, half, "partial", null, headers);
+        String second = UploadIO.create(endpoint, content.length - half, "partial", null, headers);
+        try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+            UploadIO.patch(first, 0, channel, 0, half, buffer, headers);
+            // The second part is still short, so the server refuses to join
+            UploadIO.patch(second, 0, channel, half, 1000, buffer, headers);
+        }
+        try {
+            UploadIO.create(endpoint, -1, "final;" + first + " " + second, null, headers);
+            fail("Expected HttpException");
+        } catch (UploadIO.HttpException e) {
+            assertEquals(400, e.status);
+        }
+    }
+
+    @Test
+    public void rejectedCreationIsAnHttpException() {
+        headers.remove("Authorization");
+        try {
+            UploadIO.create(endpoint, 1, null, null, headers);
+            fail("Expected HttpException");
+        } catch (UploadIO.HttpException e) {
+            assertEquals(412, e.status);
+            assertTrue(e.isPermanent());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+}